@@ -114,6 +114,8 @@ CREATE TABLE IF NOT EXISTS `BAVI`.`Song` (
                                              INDEX `fk_Song_Composer1_idx` (`COMPOSER_ID` ASC) VISIBLE,
                                              INDEX `fk_Song_Member1_idx` (`MEMBER_ID` ASC) VISIBLE,
                                              UNIQUE INDEX `ARCHIV_NUMBER_UNIQUE` (`ARCHIV_NUMBER` ASC) VISIBLE,
+                                             INDEX `TITLE_SONG_ID_idx` (`TITLE` ASC, `SONG_ID` ASC) VISIBLE,
+                                             INDEX `DATE_CREATED_SONG_ID_idx` (`DATE_CREATED` ASC, `SONG_ID` ASC) VISIBLE,
                                              CONSTRAINT `fk_Song_Publisher1`
                                                  FOREIGN KEY (`PUBLISHER_ID`)
                                                      REFERENCES `BAVI`.`Publisher` (`PUBLISHER_ID`)
@@ -181,6 +183,90 @@ CREATE TABLE IF NOT EXISTS `BAVI`.`MemberRole` (
     ENGINE = InnoDB;
 
 
+-- -----------------------------------------------------
+-- Table `BAVI`.`Program`
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `BAVI`.`Program` (
+                                                `PROGRAM_ID` INT NOT NULL AUTO_INCREMENT,
+                                                `NAME` VARCHAR(250) NOT NULL,
+                                                `CREATED_BY` VARCHAR(250) NOT NULL,
+                                                PRIMARY KEY (`PROGRAM_ID`))
+    ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `BAVI`.`ProgramSong`
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `BAVI`.`ProgramSong` (
+                                                    `PROGRAM_ID` INT NOT NULL,
+                                                    `POSITION` INT NOT NULL,
+                                                    `SONG_ID` INT NOT NULL,
+                                                    PRIMARY KEY (`PROGRAM_ID`, `POSITION`),
+                                                    INDEX `fk_Program_has_Song_Song1_idx` (`SONG_ID` ASC) VISIBLE,
+                                                    CONSTRAINT `fk_Program_has_Song_Program1`
+                                                        FOREIGN KEY (`PROGRAM_ID`)
+                                                            REFERENCES `BAVI`.`Program` (`PROGRAM_ID`)
+                                                            ON DELETE NO ACTION
+                                                            ON UPDATE NO ACTION,
+                                                    CONSTRAINT `fk_Program_has_Song_Song1`
+                                                        FOREIGN KEY (`SONG_ID`)
+                                                            REFERENCES `BAVI`.`Song` (`SONG_ID`)
+                                                            ON DELETE NO ACTION
+                                                            ON UPDATE NO ACTION)
+    ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `BAVI`.`FileBlob` (deduplicated file content, see minio.dedup.enabled)
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `BAVI`.`FileBlob` (
+                                                 `HASH` CHAR(64) NOT NULL,
+                                                 `SIZE` BIGINT NOT NULL,
+                                                 `REF_COUNT` INT NOT NULL,
+                                                 PRIMARY KEY (`HASH`))
+    ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `BAVI`.`SongFile` (file names of a song mapped to FileBlob content)
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `BAVI`.`SongFile` (
+                                                 `SONG_FILE_ID` INT NOT NULL AUTO_INCREMENT,
+                                                 `BUCKET_NAME` VARCHAR(63) NOT NULL,
+                                                 `FILE_NAME` VARCHAR(700) NOT NULL,
+                                                 `HASH` CHAR(64) NOT NULL,
+                                                 `SIZE` BIGINT NOT NULL,
+                                                 `CONTENT_TYPE` VARCHAR(250) NULL DEFAULT NULL,
+                                                 `LAST_MODIFIED` DATETIME(3) NOT NULL,
+                                                 PRIMARY KEY (`SONG_FILE_ID`),
+                                                 UNIQUE INDEX `BUCKET_FILE_UNIQUE` (`BUCKET_NAME` ASC, `FILE_NAME` ASC) VISIBLE,
+                                                 INDEX `fk_SongFile_FileBlob1_idx` (`HASH` ASC) VISIBLE,
+                                                 CONSTRAINT `fk_SongFile_FileBlob1`
+                                                     FOREIGN KEY (`HASH`)
+                                                         REFERENCES `BAVI`.`FileBlob` (`HASH`)
+                                                         ON DELETE NO ACTION
+                                                         ON UPDATE NO ACTION)
+    ENGINE = InnoDB;
+
+
+-- -----------------------------------------------------
+-- Table `BAVI`.`UploadSession` (resumable uploads, see UploadSessionService)
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `BAVI`.`UploadSession` (
+                                                 `SESSION_ID` CHAR(36) NOT NULL,
+                                                 `BUCKET_NAME` VARCHAR(63) NOT NULL,
+                                                 `FILE_NAME` VARCHAR(700) NOT NULL,
+                                                 `CONTENT_TYPE` VARCHAR(250) NULL DEFAULT NULL,
+                                                 `UPLOAD_ID` VARCHAR(250) NOT NULL,
+                                                 `CREATED_AT` DATETIME(3) NOT NULL,
+                                                 `LAST_ACTIVITY` DATETIME(3) NOT NULL,
+                                                 `COMPLETED_AT` DATETIME(3) NULL DEFAULT NULL,
+                                                 PRIMARY KEY (`SESSION_ID`),
+                                                 INDEX `UPLOAD_ID_idx` (`UPLOAD_ID` ASC) VISIBLE,
+                                                 INDEX `LAST_ACTIVITY_idx` (`LAST_ACTIVITY` ASC) VISIBLE)
+    ENGINE = InnoDB;
+
+
 SET SQL_MODE=@OLD_SQL_MODE;
 SET FOREIGN_KEY_CHECKS=@OLD_FOREIGN_KEY_CHECKS;
 SET UNIQUE_CHECKS=@OLD_UNIQUE_CHECKS;
@@ -3,6 +3,7 @@ package at.htlklu.bavi.Security;
 import at.htlklu.bavi.Security.jwt.AuthEntryPointJwt;
 import at.htlklu.bavi.Security.jwt.AuthTokenFilter;
 import at.htlklu.bavi.Security.services.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -91,7 +92,9 @@ class WebSecurityConfig {//extends WebSecurityConfigurerAdapter {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth ->
-                        auth.requestMatchers(AUTH_WHITELIST).permitAll()
+                        // streamed responses finish in an async dispatch, the request itself was already authorized
+                        auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                .requestMatchers(AUTH_WHITELIST).permitAll()
                                 .anyRequest().authenticated()
                 );
 
@@ -6,6 +6,7 @@ import at.htlklu.bavi.utils.LogUtils;
 import at.htlklu.bavi.model.Composer;
 import at.htlklu.bavi.repository.ComposersRepository;
 import at.htlklu.bavi.repository.SongsRepository;
+import at.htlklu.bavi.payload.response.PageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,12 +16,15 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 import java.util.Optional;
 
 
@@ -40,23 +44,21 @@ public class ComposerController {
     //http://localhost:8082/composers
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("")
-    @Operation(summary = "Get All Composers", description = "Retrieve all composers")
+    @Operation(summary = "Get All Composers", description = "Retrieve a page of composers, sorted with sort=<property>,asc|desc")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved composers",
             content = @Content(schema = @Schema(implementation = Composer.class)))
-    @ApiResponse(responseCode = "404", description = "No composers found")
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<?> getAllComposers() {
+    public ResponseEntity<?> getAllComposers(@PageableDefault(sort = "composerId") Pageable pageable) {
         logger.info("Retrieving all composers");
         ResponseEntity<?> result;
         try {
-            List<Composer> composers = composersRepository.findAll();
-            if (!composers.isEmpty()) {
-                logger.debug("Retrieved {} composers", composers.size());
-                result = new ResponseEntity<>(composers, HttpStatus.OK);
-            } else {
-                logger.warn("No composers found");
-                result = new ResponseEntity<>("No composers found", HttpStatus.NOT_FOUND);
-            }
+            Page<Composer> composers = composersRepository.findAll(pageable);
+            logger.debug("Retrieved {} composers", composers.getNumberOfElements());
+            result = new ResponseEntity<>(new PageResponse<>(composers), HttpStatus.OK);
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            result = new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error retrieving composers: {}", e.getMessage());
             String errorMessage = ErrorsUtils.getErrorMessage(e);
@@ -101,7 +103,7 @@ public class ComposerController {
         if (optionalComposer.isPresent()) {
             Composer composer = optionalComposer.get();
             logger.debug("Retrieved composer: {}", composer);
-            result = new ResponseEntity<>(composer.getSongs(), HttpStatus.OK);
+            result = new ResponseEntity<>(songsRepository.findByComposerComposerIdOrderByTitle(composerId), HttpStatus.OK);
         } else {
             logger.warn("Composer not found: {}", composerId);
             result = new ResponseEntity<>(String.format("Composer not found (%d)", composerId), HttpStatus.NOT_FOUND);
@@ -6,6 +6,7 @@ import at.htlklu.bavi.utils.LogUtils;
 import at.htlklu.bavi.model.Genre;
 import at.htlklu.bavi.repository.GenresRepository;
 import at.htlklu.bavi.repository.SongsRepository;
+import at.htlklu.bavi.payload.response.PageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,12 +16,15 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 import java.util.Optional;
 
 
@@ -40,23 +44,21 @@ public class GenreController {
     //http://localhost:8082/genres
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("")
-    @Operation(summary = "Get All Genres", description = "Retrieve all genres")
+    @Operation(summary = "Get All Genres", description = "Retrieve a page of genres, sorted with sort=<property>,asc|desc")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved genres",
             content = @Content(schema = @Schema(implementation = Genre.class)))
-    @ApiResponse(responseCode = "404", description = "No genres found")
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<?> getAllGenres() {
+    public ResponseEntity<?> getAllGenres(@PageableDefault(sort = "genreId") Pageable pageable) {
         logger.info("Retrieving all genres");
         ResponseEntity<?> result;
         try {
-            List<Genre> genres = genresRepository.findAll();
-            if (!genres.isEmpty()) {
-                logger.debug("Retrieved {} genres", genres.size());
-                result = new ResponseEntity<>(genres, HttpStatus.OK);
-            } else {
-                logger.warn("No genres found");
-                result = new ResponseEntity<>("No genres found", HttpStatus.NOT_FOUND);
-            }
+            Page<Genre> genres = genresRepository.findAll(pageable);
+            logger.debug("Retrieved {} genres", genres.getNumberOfElements());
+            result = new ResponseEntity<>(new PageResponse<>(genres), HttpStatus.OK);
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            result = new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error retrieving genres: {}", e.getMessage());
             String errorMessage = ErrorsUtils.getErrorMessage(e);
@@ -102,7 +104,7 @@ public class GenreController {
         if (optionalGenre.isPresent()) {
             Genre genre = optionalGenre.get();
             logger.debug("Retrieved genre: {}", genre);
-            result = new ResponseEntity<>(genre.getSongs(), HttpStatus.OK);
+            result = new ResponseEntity<>(songsRepository.findByGenreGenreIdOrderByTitle(genreId), HttpStatus.OK);
         } else {
             logger.warn("Genre not found: {}", genreId);
             result = new ResponseEntity<>(String.format("Genre not found (%d)", genreId), HttpStatus.NOT_FOUND);
@@ -6,6 +6,7 @@ import at.htlklu.bavi.utils.LogUtils;
 import at.htlklu.bavi.model.Instrument;
 import at.htlklu.bavi.repository.InstrumentsRepository;
 import at.htlklu.bavi.repository.MembersRepository;
+import at.htlklu.bavi.payload.response.PageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,12 +16,15 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 import java.util.Optional;
 
 
@@ -41,23 +45,21 @@ public class InstrumentController {
     //http://localhost:8082/instruments
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("")
-    @Operation(summary = "Get All Instruments", description = "Retrieve all instruments")
+    @Operation(summary = "Get All Instruments", description = "Retrieve a page of instruments, sorted with sort=<property>,asc|desc")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved instruments",
             content = @Content(schema = @Schema(implementation = Instrument.class)))
-    @ApiResponse(responseCode = "404", description = "No instruments found")
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<?> getAllInstruments() {
+    public ResponseEntity<?> getAllInstruments(@PageableDefault(sort = "instrumentId") Pageable pageable) {
         logger.info("Retrieving all instruments");
         ResponseEntity<?> result;
         try {
-            List<Instrument> instruments = instrumentsRepository.findAll();
-            if (!instruments.isEmpty()) {
-                logger.debug("Retrieved {} instruments", instruments.size());
-                result = new ResponseEntity<>(instruments, HttpStatus.OK);
-            } else {
-                logger.warn("No instruments found");
-                result = new ResponseEntity<>("No instruments found", HttpStatus.NOT_FOUND);
-            }
+            Page<Instrument> instruments = instrumentsRepository.findAll(pageable);
+            logger.debug("Retrieved {} instruments", instruments.getNumberOfElements());
+            result = new ResponseEntity<>(new PageResponse<>(instruments), HttpStatus.OK);
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            result = new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error retrieving instruments: {}", e.getMessage());
             String errorMessage = ErrorsUtils.getErrorMessage(e);
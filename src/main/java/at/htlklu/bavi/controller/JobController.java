@@ -0,0 +1,118 @@
+package at.htlklu.bavi.controller;
+
+import at.htlklu.bavi.minio.MinioDedupMigrationService;
+import at.htlklu.bavi.minio.MinioJob;
+import at.htlklu.bavi.minio.MinioJobService;
+import at.htlklu.bavi.minio.MinioLayoutMigrationService;
+import at.htlklu.bavi.minio.MinioScrubService;
+import at.htlklu.bavi.utils.LogUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("jobs")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class JobController {
+
+    private static final Logger logger = LogManager.getLogger(JobController.class);
+    private static final String CLASS_NAME = "JobController";
+
+    @Autowired
+    MinioJobService minioJobService;
+
+    @Autowired
+    MinioLayoutMigrationService minioLayoutMigrationService;
+
+    @Autowired
+    MinioScrubService minioScrubService;
+
+    @Autowired
+    MinioDedupMigrationService minioDedupMigrationService;
+
+
+    //http://localhost:8082/jobs/id
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(value = "{jobId}")
+    @Operation(summary = "Get Job by ID", description = "Retrieve the state of a background storage job")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved job",
+            content = @Content(schema = @Schema(implementation = MinioJob.class)))
+    @ApiResponse(responseCode = "404", description = "Job not found")
+    public ResponseEntity<?> getById(@PathVariable String jobId) {
+        logger.info(LogUtils.info(CLASS_NAME, "getById", String.format("(%s)", jobId)));
+
+        MinioJob job = minioJobService.getJob(jobId);
+        if (job == null) {
+            logger.warn("Job not found: {}", jobId);
+            return new ResponseEntity<>(String.format("Job not found (%s)", jobId), HttpStatus.NOT_FOUND);
+        }
+        logger.debug("Retrieved job: {} ({})", jobId, job.getStatus());
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "layoutMigration")
+    @Operation(summary = "Migrate Storage Layout", description = "Copy the files of all songs from their own buckets into the shared bucket "
+            + "of the prefix layout while the application keeps running. An interrupted migration resumes after the last migrated song, "
+            + "pass full=true to compare all songs again. Switch minio.layout.type to prefix once a run completed")
+    @ApiResponse(responseCode = "202", description = "Migration started",
+            content = @Content(schema = @Schema(implementation = MinioJob.class)))
+    @ApiResponse(responseCode = "409", description = "Migration already running or prefix layout already in use")
+    public ResponseEntity<?> startLayoutMigration(@RequestParam(defaultValue = "false") boolean full) {
+        logger.info(LogUtils.info(CLASS_NAME, "startLayoutMigration", String.format("(%b)", full)));
+
+        try {
+            MinioJob job = minioLayoutMigrationService.start(full);
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        } catch (IllegalStateException e) {
+            logger.warn("Layout migration not started: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "scrub")
+    @Operation(summary = "Check Stored Files", description = "Read all song files and compare them with their checksums, "
+            + "and report buckets without song and songs without bucket. Runs on minio.scrub.cron as well")
+    @ApiResponse(responseCode = "202", description = "Integrity check started",
+            content = @Content(schema = @Schema(implementation = MinioJob.class)))
+    @ApiResponse(responseCode = "409", description = "Integrity check already running")
+    public ResponseEntity<?> startScrub() {
+        logger.info(LogUtils.info(CLASS_NAME, "startScrub", "Starting integrity check"));
+
+        try {
+            MinioJob job = minioScrubService.start();
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        } catch (IllegalStateException e) {
+            logger.warn("Integrity check not started: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "dedupMigration")
+    @Operation(summary = "Migrate Files to Deduplication", description = "Move the files stored before minio.dedup.enabled was "
+            + "switched on into the blob store, until then they are not listed. Safe to run again, e.g. after an interrupted run")
+    @ApiResponse(responseCode = "202", description = "Migration started",
+            content = @Content(schema = @Schema(implementation = MinioJob.class)))
+    @ApiResponse(responseCode = "409", description = "Migration already running or deduplication not enabled")
+    public ResponseEntity<?> startDedupMigration() {
+        logger.info(LogUtils.info(CLASS_NAME, "startDedupMigration", "Starting deduplication migration"));
+
+        try {
+            MinioJob job = minioDedupMigrationService.start();
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        } catch (IllegalStateException e) {
+            logger.warn("Deduplication migration not started: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+}
@@ -11,6 +11,8 @@ import at.htlklu.bavi.repository.MembersRepository;
 import at.htlklu.bavi.repository.SongsRepository;
 import at.htlklu.bavi.repository.RoleRepository;
 import at.htlklu.bavi.repository.InstrumentsRepository;
+import at.htlklu.bavi.payload.response.MemberSummary;
+import at.htlklu.bavi.payload.response.PageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -20,13 +22,16 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 import java.util.Optional;
 
 
@@ -55,23 +60,21 @@ public class MemberController {
 
     @GetMapping("")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get All Members", description = "Retrieve all members")
+    @Operation(summary = "Get All Members", description = "Retrieve a page of members, sorted with sort=<property>,asc|desc")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved members",
-            content = @Content(schema = @Schema(implementation = Member.class)))
-    @ApiResponse(responseCode = "404", description = "No members found")
+            content = @Content(schema = @Schema(implementation = MemberSummary.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<?> getAllMembers() {
+    public ResponseEntity<?> getAllMembers(@PageableDefault(sort = "memberId") Pageable pageable) {
         logger.info("Retrieving all members");
         ResponseEntity<?> result;
         try {
-            List<Member> members = membersRepository.findAll();
-            if (!members.isEmpty()) {
-                logger.debug("Retrieved {} members", members.size());
-                result = new ResponseEntity<>(members, HttpStatus.OK);
-            } else {
-                logger.warn("No members found");
-                result = new ResponseEntity<>("No members found", HttpStatus.NOT_FOUND);
-            }
+            Page<MemberSummary> members = membersRepository.findSummaries(pageable);
+            logger.debug("Retrieved {} members", members.getNumberOfElements());
+            result = new ResponseEntity<>(new PageResponse<>(members), HttpStatus.OK);
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            result = new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error retrieving members: {}", e.getMessage());
             String errorMessage = ErrorsUtils.getErrorMessage(e);
@@ -116,7 +119,7 @@ public class MemberController {
 
             Member member = optionalMember.get();
             logger.debug("Retrieved member: {}", member);
-            result = new ResponseEntity<>(member.getSongs(), HttpStatus.OK);
+            result = new ResponseEntity<>(songsRepository.findByMemberMemberIdOrderByTitle(memberId), HttpStatus.OK);
 
         } else {
             logger.warn("Member not found: {}", memberId);
@@ -1,22 +1,48 @@
 package at.htlklu.bavi.controller;
 
+import at.htlklu.bavi.minio.FileNotFoundException;
+import at.htlklu.bavi.minio.MinioArchiveService;
 import at.htlklu.bavi.minio.MinioBucketExistsException;
+import at.htlklu.bavi.minio.MinioBusyException;
+import at.htlklu.bavi.minio.MinioCodec;
+import at.htlklu.bavi.minio.MinioDeleteException;
+import at.htlklu.bavi.minio.MinioPreconditionFailedException;
+import at.htlklu.bavi.minio.MinioPreviewService;
 import at.htlklu.bavi.minio.MinioService;
 import at.htlklu.bavi.minio.MinioServiceException;
+import at.htlklu.bavi.minio.StoredFile;
+import at.htlklu.bavi.payload.response.PresignedUrlResponse;
 import at.htlklu.bavi.utils.LogUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.zip.InflaterOutputStream;
 
 //@CrossOrigin(origins = "*", maxAge = 3600)
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -26,50 +52,389 @@ public class MinioController {
 
     private static final Logger logger = LogManager.getLogger(MinioController.class);
     private static final String CLASS_NAME = "MinioController";
+    // request attributes of Tomcat's sendfile support (see org.apache.coyote.Constants)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     @Autowired
     private MinioService minioService;
 
+    @Autowired
+    private MinioArchiveService minioArchiveService;
+
+    @Autowired
+    private MinioPreviewService minioPreviewService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${minio.presigned.enabled:false}")
+    private boolean presignedEnabled;
+
+    @Value("${minio.presigned.expirySeconds:300}")
+    private int presignedExpirySeconds;
+
 
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("{archivNumber}/upload")
-    @Operation(summary = "Upload File", description = "Upload a file to the specified song")
+    @Operation(summary = "Upload File", description = "Upload a file to the specified song. "
+            + "Send If-None-Match: * to never overwrite an existing file, or If-Match with its ETag to only replace that version")
     @ApiResponse(responseCode = "200", description = "File uploaded successfully")
     @ApiResponse(responseCode = "400", description = "Failed to upload file")
-    public ResponseEntity<String> uploadFile(@PathVariable String archivNumber, @RequestParam("file") MultipartFile file) {
+    @ApiResponse(responseCode = "412", description = "File exists or was changed in the meantime")
+    @ApiResponse(responseCode = "500", description = "Failed to store file")
+    public ResponseEntity<String> uploadFile(@PathVariable String archivNumber, @RequestParam("file") MultipartFile file,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info(LogUtils.info(CLASS_NAME, "uploadFile", String.format("(%s, %s)", archivNumber, file.getOriginalFilename())));
 
-        try {
-            minioService.uploadFile(archivNumber, file.getOriginalFilename(), file.getInputStream(), file.getContentType());
+        try (InputStream inputStream = file.getInputStream()) {
+            String eTag = minioService.uploadFile(archivNumber, file.getOriginalFilename(), inputStream, file.getSize(), file.getContentType(), ifMatch, ifNoneMatch);
             logger.debug("File uploaded successfully: {}", file.getOriginalFilename());
-            return ResponseEntity.ok().body("File uploaded successfully");
+            return ResponseEntity.ok().eTag(eTag).body("File uploaded successfully");
+        } catch (IOException e) {
+            logger.error("Failed to upload file: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Failed to upload file");
+        } catch (MinioPreconditionFailedException e) {
+            logger.warn("File {} not uploaded, precondition failed: {}", file.getOriginalFilename(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("File exists or was changed in the meantime");
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
+        } catch (MinioServiceException e) {
+            logger.error("Failed to store file {}: {}", file.getOriginalFilename(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to store file");
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("{archivNumber}/{file}/upload")
+    @Operation(summary = "Upload File (streaming)", description = "Upload the raw request body as a file to the specified song. "
+            + "The body is passed straight through to the object storage, so no size limit for multipart requests applies. "
+            + "Send If-None-Match: * to never overwrite an existing file, or If-Match with its ETag to only replace that version")
+    @ApiResponse(responseCode = "200", description = "File uploaded successfully")
+    @ApiResponse(responseCode = "400", description = "Failed to upload file")
+    @ApiResponse(responseCode = "412", description = "File exists or was changed in the meantime")
+    @ApiResponse(responseCode = "500", description = "Failed to store file")
+    public ResponseEntity<String> uploadFileStream(@PathVariable String archivNumber, @PathVariable String file, HttpServletRequest request,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        logger.info(LogUtils.info(CLASS_NAME, "uploadFileStream", String.format("(%s, %s, %d bytes)", archivNumber, file, request.getContentLengthLong())));
+
+        // Content-Length is -1 for chunked requests, the object is then uploaded part by part
+        try (InputStream inputStream = request.getInputStream()) {
+            String eTag = minioService.uploadFile(archivNumber, file, inputStream, request.getContentLengthLong(), request.getContentType(), ifMatch, ifNoneMatch);
+            logger.debug("File uploaded successfully: {}", file);
+            return ResponseEntity.ok().eTag(eTag).body("File uploaded successfully");
         } catch (IOException e) {
             logger.error("Failed to upload file: {}", e.getMessage());
             return ResponseEntity.badRequest().body("Failed to upload file");
+        } catch (MinioPreconditionFailedException e) {
+            logger.warn("File {} not uploaded, precondition failed: {}", file, e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("File exists or was changed in the meantime");
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
+        } catch (MinioServiceException e) {
+            logger.error("Failed to store file {}: {}", file, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to store file");
         }
     }
 
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("{archivNumber}/{file}/download")
-    @Operation(summary = "Download File", description = "Download a file from a specified song")
+    @Operation(summary = "Download File", description = "Download a file from a specified song, supports Range and conditional requests")
     @ApiResponse(responseCode = "200", description = "File downloaded successfully")
+    @ApiResponse(responseCode = "206", description = "Requested byte range downloaded successfully")
+    @ApiResponse(responseCode = "304", description = "File not modified")
+    @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
     @ApiResponse(responseCode = "400", description = "Failed to download file")
-    public ResponseEntity<ByteArrayResource> downloadFile(@PathVariable String archivNumber, @PathVariable String file) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable String archivNumber, @PathVariable String file,
+                                                              @RequestHeader HttpHeaders requestHeaders, HttpServletRequest request) {
         logger.info(LogUtils.info(CLASS_NAME, "downloadFile", String.format("(%s, %s)", archivNumber, file)));
 
         try {
-            ByteArrayResource resource = minioService.downloadFile(archivNumber, file);
-            logger.debug("File downloaded successfully: {}", file);
-            return ResponseEntity.ok()
-                    .contentLength(resource.contentLength())
-                    .header("Content-Disposition", "attachment; filename=\"" + file + "\"")
-                    .body(resource);
+            StoredFile stat = minioService.statFile(archivNumber, file);
+            long size = stat.getSize();
+            long lastModified = stat.getLastModified().toEpochMilli();
+
+            // Encoded files (see MinioCodec) are sent as stored if the client accepts the codec,
+            // otherwise they are decoded while streaming. Ranges are only served for files stored as they are.
+            String codec = MinioCodec.getCodec(stat.getUserMetadata());
+            boolean decode = codec != null && !MinioCodec.isAccepted(requestHeaders.getFirst(HttpHeaders.ACCEPT_ENCODING), codec);
+            // the encoded and the decoded representation differ in their bytes, so each has its own ETag
+            String eTag = "\"" + stat.getETag() + (codec != null && !decode ? "-" + codec : "") + "\"";
+
+            if (isNotModified(requestHeaders, eTag, lastModified)) {
+                logger.debug("File not modified: {}", file);
+                ResponseEntity.HeadersBuilder<?> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .lastModified(lastModified);
+                if (codec != null) {
+                    notModified.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                }
+                return notModified.build();
+            }
+
+            ResponseEntity.BodyBuilder response;
+            long offset = 0;
+            long length = size;
+            HttpRange range = codec == null ? getRange(requestHeaders, eTag, lastModified) : null;
+            if (range != null) {
+                if (!isSatisfiable(range, size)) {
+                    logger.warn("Range not satisfiable for file {}: {}", file, requestHeaders.getFirst(HttpHeaders.RANGE));
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                            .build();
+                }
+                offset = range.getRangeStart(size);
+                length = range.getRangeEnd(size) - offset + 1;
+                response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .header(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", offset, offset + length - 1, size));
+            } else {
+                response = ResponseEntity.ok();
+            }
+
+            if (codec != null) {
+                response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .header(HttpHeaders.ACCEPT_RANGES, "none");
+                if (!decode) {
+                    response.contentLength(size)
+                            .header(HttpHeaders.CONTENT_ENCODING, codec);
+                } else if (MinioCodec.getOriginalSize(stat.getUserMetadata()) >= 0) {
+                    response.contentLength(MinioCodec.getOriginalSize(stat.getUserMetadata()));
+                }
+            } else {
+                response.contentLength(length)
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+            }
+            response.contentType(getMediaType(stat.getContentType()))
+                    .eTag(eTag)
+                    .lastModified(lastModified)
+                    .header("Content-Disposition", "attachment; filename=\"" + file + "\"");
+
+            // Files on the local disk are sent by Tomcat with sendfile, straight from the file to the socket
+            if (!decode && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                Path localFile = minioService.getLocalFile(archivNumber, file, stat.getETag(), length, range == null);
+                if (localFile != null) {
+                    request.setAttribute(SENDFILE_FILENAME, localFile.toAbsolutePath().toString());
+                    request.setAttribute(SENDFILE_START, offset);
+                    request.setAttribute(SENDFILE_END, offset + length);
+                    logger.debug("Sending file {} with sendfile ({} bytes)", file, length);
+                    return response.build();
+                }
+            }
+
+            // The object is only opened once the response is written and is copied chunk by chunk,
+            // it is never held in memory as a whole
+            long rangeOffset = offset;
+            Long rangeLength = range != null ? length : null;
+            StreamingResponseBody body = outputStream -> {
+                if (decode) {
+                    InflaterOutputStream decodingStream = MinioCodec.decode(outputStream);
+                    long bytes = minioService.downloadFile(archivNumber, file, stat.getETag(), size, null, null, decodingStream);
+                    // writes the rest of the decoded content and releases the inflater
+                    decodingStream.close();
+                    logger.debug("File downloaded and decoded successfully: {} ({} bytes stored)", file, bytes);
+                } else {
+                    long bytes = minioService.downloadFile(archivNumber, file, stat.getETag(), size, rangeOffset, rangeLength, outputStream);
+                    logger.debug("File downloaded successfully: {} ({} bytes)", file, bytes);
+                }
+            };
+            return response.body(body);
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
         } catch (Exception e) {
             logger.error("Failed to download file {}: {}", file, e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
 
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping("{archivNumber}/{file}/preview")
+    @Operation(summary = "Preview", description = "Get a PNG preview of the first page of a PDF or image file. "
+            + "Pass thumbnail=true for a small thumbnail. Previews are rendered in the background, "
+            + "202 means the preview is not ready yet and should be requested again later")
+    @ApiResponse(responseCode = "200", description = "Preview returned successfully")
+    @ApiResponse(responseCode = "202", description = "Preview is being rendered")
+    @ApiResponse(responseCode = "304", description = "Preview not modified")
+    @ApiResponse(responseCode = "404", description = "File not found, or no preview available for this file type, "
+            + "for files larger than minio.preview.maxSourceBytes or for files that could not be rendered")
+    public ResponseEntity<?> getPreview(@PathVariable String archivNumber, @PathVariable String file,
+                                        @RequestParam(defaultValue = "false") boolean thumbnail,
+                                        @RequestHeader HttpHeaders requestHeaders) {
+        logger.info(LogUtils.info(CLASS_NAME, "getPreview", String.format("(%s, %s, %b)", archivNumber, file, thumbnail)));
+
+        try {
+            StoredFile stat = minioService.statFile(archivNumber, file);
+            if (!minioPreviewService.isAvailable(archivNumber, file, stat)) {
+                logger.warn("No preview available for file {}", file);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No preview available for this file");
+            }
+
+            // the preview changes exactly when the file does
+            String eTag = "\"" + stat.getETag() + (thumbnail ? "-thumbnail" : "-preview") + "\"";
+            long lastModified = stat.getLastModified().toEpochMilli();
+            if (isNotModified(requestHeaders, eTag, lastModified)) {
+                logger.debug("Preview not modified: {}", file);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .lastModified(lastModified)
+                        .build();
+            }
+
+            InputStream inputStream = minioPreviewService.openPreview(archivNumber, file, stat, thumbnail);
+            if (inputStream == null) {
+                logger.debug("Preview of file {} is being rendered", file);
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .body("Preview is being rendered");
+            }
+
+            StreamingResponseBody body = outputStream -> {
+                try (inputStream) {
+                    inputStream.transferTo(outputStream);
+                }
+            };
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_PNG)
+                    .eTag(eTag)
+                    .lastModified(lastModified)
+                    .cacheControl(CacheControl.noCache())
+                    .body(body);
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
+        } catch (Exception e) {
+            logger.error("Failed to get preview of file {}: {}", file, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping("{archivNumber}/archive.zip")
+    @Operation(summary = "Download all song files", description = "Download all files of the specified song as one ZIP archive. "
+            + "Pass store=true to skip compression for files that are already compressed (PDF, MP3)")
+    @ApiResponse(responseCode = "200", description = "Archive streamed successfully")
+    @ApiResponse(responseCode = "404", description = "Song bucket not found")
+    public ResponseEntity<StreamingResponseBody> downloadArchive(@PathVariable String archivNumber,
+                                                                 @RequestParam(defaultValue = "false") boolean store) {
+        logger.info(LogUtils.info(CLASS_NAME, "downloadArchive", String.format("(%s, %b)", archivNumber, store)));
+
+        try {
+            if (!minioService.bucketExists(archivNumber)) {
+                logger.warn("Bucket {} does not exist", archivNumber);
+                return ResponseEntity.notFound().build();
+            }
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
+        } catch (MinioServiceException e) {
+            logger.error("Failed to download archive {}: {}", archivNumber, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+        // The size is unknown up front, the archive is sent chunked while the files are read from MinIO
+        StreamingResponseBody body = outputStream -> {
+            minioArchiveService.writeZip(minioArchiveService.listEntries(archivNumber), outputStream, store);
+            logger.debug("Archive downloaded successfully: {}", archivNumber);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header("Content-Disposition", "attachment; filename=\"" + archivNumber + ".zip\"")
+                .body(body);
+    }
+
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping("{archivNumber}/{file}/presignedDownload")
+    @Operation(summary = "Presigned Download URL", description = "Create a short-lived URL to download a file directly from the object storage")
+    @ApiResponse(responseCode = "200", description = "Download URL created successfully")
+    @ApiResponse(responseCode = "404", description = "File not found or presigned URLs are disabled")
+    @ApiResponse(responseCode = "500", description = "Failed to create download URL")
+    public ResponseEntity<?> getPresignedDownloadUrl(@PathVariable String archivNumber, @PathVariable String file) {
+        logger.info(LogUtils.info(CLASS_NAME, "getPresignedDownloadUrl", String.format("(%s, %s)", archivNumber, file)));
+
+        if (!presignedEnabled) {
+            logger.warn("Presigned URLs are disabled");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Presigned URLs are disabled");
+        }
+
+        try {
+            minioService.statFile(archivNumber, file);
+            String url = minioService.getPresignedDownloadUrl(archivNumber, file, presignedExpirySeconds);
+            logger.debug("Presigned download url created for file: {}", file);
+            return ResponseEntity.ok().body(new PresignedUrlResponse(url, "GET", Instant.now().plusSeconds(presignedExpirySeconds)));
+        } catch (FileNotFoundException e) {
+            logger.warn("File {} not found in archive {}", file, archivNumber);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("File not found");
+        } catch (MinioServiceException e) {
+            logger.error("Failed to create download url for file {}: {}", file, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to create download url");
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("{archivNumber}/{file}/presignedUpload")
+    @Operation(summary = "Presigned Upload URL", description = "Create a short-lived URL to upload a file directly to the object storage (HTTP PUT). "
+            + "Call presignedUpload/confirm once the upload succeeded, until then the file is missing from listings and previews")
+    @ApiResponse(responseCode = "200", description = "Upload URL created successfully")
+    @ApiResponse(responseCode = "404", description = "Presigned URLs are disabled")
+    @ApiResponse(responseCode = "500", description = "Failed to create upload URL")
+    public ResponseEntity<?> getPresignedUploadUrl(@PathVariable String archivNumber, @PathVariable String file) {
+        logger.info(LogUtils.info(CLASS_NAME, "getPresignedUploadUrl", String.format("(%s, %s)", archivNumber, file)));
+
+        // deduplicated uploads have to pass the backend to be hashed
+        if (!presignedEnabled || minioService.isDeduplicated()) {
+            logger.warn("Presigned uploads are disabled");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Presigned URLs are disabled");
+        }
+
+        try {
+            String url = minioService.getPresignedUploadUrl(archivNumber, file, presignedExpirySeconds);
+            logger.debug("Presigned upload url created for file: {}", file);
+            return ResponseEntity.ok().body(new PresignedUrlResponse(url, "PUT", Instant.now().plusSeconds(presignedExpirySeconds)));
+        } catch (MinioServiceException e) {
+            logger.error("Failed to create upload url for file {}: {}", file, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to create upload url");
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("{archivNumber}/{file}/presignedUpload/confirm")
+    @Operation(summary = "Confirm Presigned Upload", description = "Complete a file uploaded with a presigned URL: its checksum is recorded, "
+            + "cached listings are refreshed and its preview is rendered")
+    @ApiResponse(responseCode = "200", description = "Upload confirmed successfully")
+    @ApiResponse(responseCode = "404", description = "File not found or presigned URLs are disabled")
+    @ApiResponse(responseCode = "500", description = "Failed to confirm upload")
+    public ResponseEntity<String> confirmPresignedUpload(@PathVariable String archivNumber, @PathVariable String file) {
+        logger.info(LogUtils.info(CLASS_NAME, "confirmPresignedUpload", String.format("(%s, %s)", archivNumber, file)));
+
+        if (!presignedEnabled || minioService.isDeduplicated()) {
+            logger.warn("Presigned uploads are disabled");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Presigned URLs are disabled");
+        }
+
+        try {
+            String eTag = minioService.confirmUpload(archivNumber, file);
+            logger.debug("Presigned upload confirmed for file: {}", file);
+            return ResponseEntity.ok().eTag(eTag).body("Upload confirmed successfully");
+        } catch (FileNotFoundException e) {
+            logger.warn("Confirmed file {} not found", file);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("File not found");
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
+        } catch (MinioServiceException e) {
+            logger.error("Failed to confirm upload of file {}: {}", file, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to confirm upload");
+        }
+    }
+
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("{archivNumber}/list")
     @Operation(summary = "List song files", description = "List a file from the specified song")
@@ -82,6 +447,9 @@ public class MinioController {
             List<String> objectNames = minioService.listFiles(archivNumber);
             logger.debug("List of files retrieved successfully for archive: {}", archivNumber);
             return ResponseEntity.ok().body(objectNames);
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
         } catch (MinioServiceException e) {
             logger.error("Failed to list files for archive {}: {}", archivNumber, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -89,6 +457,56 @@ public class MinioController {
     }
 
 
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping(value = "{archivNumber}/list", params = "limit")
+    @Operation(summary = "List song files page", description = "List up to limit files of the specified song with size, ETag, "
+            + "last modification and content type. Pass the returned nextStartAfter as startAfter to get the next page")
+    @ApiResponse(responseCode = "200", description = "Files listed successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid limit")
+    @ApiResponse(responseCode = "404", description = "Song bucket not found")
+    public ResponseEntity<StreamingResponseBody> listFiles(@PathVariable String archivNumber, @RequestParam int limit,
+                                                           @RequestParam(required = false) String startAfter) {
+        logger.info(LogUtils.info(CLASS_NAME, "listFiles", String.format("(%s, %d, %s)", archivNumber, limit, startAfter)));
+
+        if (limit < 1 || limit > MinioService.MAX_LIST_KEYS) {
+            logger.warn("Invalid list limit: {}", limit);
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            if (!minioService.bucketExists(archivNumber)) {
+                logger.warn("Bucket {} does not exist", archivNumber);
+                return ResponseEntity.notFound().build();
+            }
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
+        } catch (MinioServiceException e) {
+            logger.error("Failed to list files for archive {}: {}", archivNumber, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+        // Every item is written as soon as MinIO returns it, the page is never collected in memory
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("files");
+            String nextStartAfter = minioService.listFiles(archivNumber, startAfter, limit, fileInfo -> {
+                try {
+                    generator.writeObject(fileInfo);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.writeStringField("nextStartAfter", nextStartAfter);
+            generator.writeEndObject();
+            generator.flush();
+            logger.debug("List of files retrieved successfully for archive: {}", archivNumber);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("{archivNumber}/{file}/delete")
     @Operation(summary = "Delete File", description = "Upload a file to the specified archive number")
@@ -101,6 +519,9 @@ public class MinioController {
             minioService.deleteFile(archivNumber, file);
             logger.debug("File {} deleted successfully from archive {}", file, archivNumber);
             return ResponseEntity.ok().body("File " + file + " deleted successfully");
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
         } catch (Exception e) {
             logger.error("Failed to delete file {} from archive {}: {}", file, archivNumber, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to delete file");
@@ -122,6 +543,9 @@ public class MinioController {
         } catch (MinioBucketExistsException e) {
             logger.warn("Bucket {} already exists", archivNumber);
             return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Bucket already exists");
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
         } catch (MinioServiceException e) {
             logger.error("Error creating bucket {}: {}", archivNumber, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error creating bucket: " + e.getMessage());
@@ -133,7 +557,8 @@ public class MinioController {
     @Operation(summary = "Delete Bucket", description = "Delete Bucket")
     @ApiResponse(responseCode = "200", description = "Deleted successfully")
     @ApiResponse(responseCode = "400", description = "Failed to Delete Bucket")
-    public ResponseEntity<String> deleteBucket(@PathVariable String archivNumber) {
+    @ApiResponse(responseCode = "500", description = "Some files could not be deleted, the body lists them")
+    public ResponseEntity<?> deleteBucket(@PathVariable String archivNumber) {
         logger.info(LogUtils.info(CLASS_NAME, "deleteBucket", String.format("(%s)", archivNumber)));
 
         try {
@@ -143,9 +568,88 @@ public class MinioController {
         } catch (MinioBucketExistsException e) {
             logger.warn("Bucket {} does not exist", archivNumber);
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Bucket does not exist");
+        } catch (MinioDeleteException e) {
+            logger.error("Error deleting bucket {}: {}", archivNumber, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getFailedObjects());
+        } catch (MinioBusyException e) {
+            logger.warn("Storage busy: {}", e.getMessage());
+            return busy();
         } catch (MinioServiceException e) {
             logger.error("Error deleting bucket {}: {}", archivNumber, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error deleting bucket: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // the storage is overloaded (see BulkheadFileStorage), clients should retry instead of giving up
+    private static <T> ResponseEntity<T> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    private static boolean isNotModified(HttpHeaders requestHeaders, String eTag, long lastModified) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            // If-None-Match takes precedence over If-Modified-Since (RFC 9110, 13.2.2)
+            for (String candidate : ifNoneMatch) {
+                if (candidate.equals("*") || stripWeakPrefix(candidate).equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        // HTTP dates only have a resolution of seconds
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    // Returns the single requested range, or null if the full file has to be sent
+    static HttpRange getRange(HttpHeaders requestHeaders, String eTag, long lastModified) {
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.size() != 1) {
+            // no range or multiple ranges, multipart/byteranges responses are not supported
+            return null;
+        }
+
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                // If-Range only matches on strong entity tags
+                if (!ifRange.equals(eTag)) {
+                    return null;
+                }
+            } else {
+                try {
+                    long ifRangeDate = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                    if (ifRangeDate / 1000 != lastModified / 1000) {
+                        return null;
+                    }
+                } catch (DateTimeParseException e) {
+                    return null;
+                }
+            }
+        }
+        return ranges.get(0);
+    }
+
+    // HttpRange does not check the range against the size, a range starting at or after the end cannot be served
+    static boolean isSatisfiable(HttpRange range, long size) {
+        long start = range.getRangeStart(size);
+        return start < size && range.getRangeEnd(size) >= start;
+    }
+
+    private static String stripWeakPrefix(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    private static MediaType getMediaType(String contentType) {
+        try {
+            return contentType != null ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package at.htlklu.bavi.controller;
+
+import at.htlklu.bavi.Security.services.UserDetailsImpl;
+import at.htlklu.bavi.minio.ArchiveEntry;
+import at.htlklu.bavi.minio.MinioArchiveService;
+import at.htlklu.bavi.minio.MinioService;
+import at.htlklu.bavi.model.Member;
+import at.htlklu.bavi.model.Program;
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.repository.InstrumentsRepository;
+import at.htlklu.bavi.repository.MembersRepository;
+import at.htlklu.bavi.repository.ProgramsRepository;
+import at.htlklu.bavi.utils.ErrorsUtils;
+import at.htlklu.bavi.utils.LogUtils;
+import at.htlklu.bavi.payload.response.PageResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+
+@RestController
+@RequestMapping("programs")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class ProgramController {
+
+    private static final Logger logger = LogManager.getLogger(ProgramController.class);
+    private static final String CLASS_NAME = "ProgramController";
+    @Autowired
+    ProgramsRepository programsRepository;
+    @Autowired
+    MembersRepository membersRepository;
+    @Autowired
+    InstrumentsRepository instrumentsRepository;
+    @Autowired
+    MinioService minioService;
+    @Autowired
+    MinioArchiveService minioArchiveService;
+
+    // a whole program has many small files, so more of them are opened ahead than for a single song
+    @Value("${minio.archive.bundlePrefetch:4}")
+    private int bundlePrefetch;
+
+
+    //http://localhost:8082/programs
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping("")
+    @Operation(summary = "Get All Programs", description = "Retrieve a page of concert programs, sorted with sort=<property>,asc|desc")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved programs",
+            content = @Content(schema = @Schema(implementation = Program.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public ResponseEntity<?> getAllPrograms(@PageableDefault(sort = "programId") Pageable pageable) {
+        logger.info(LogUtils.info(CLASS_NAME, "getAllPrograms", "Retrieving all programs"));
+        ResponseEntity<?> result;
+        try {
+            Page<Program> programs = programsRepository.findAll(pageable);
+            logger.debug("Retrieved {} programs", programs.getNumberOfElements());
+            result = new ResponseEntity<>(new PageResponse<>(programs), HttpStatus.OK);
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            result = new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Error retrieving programs: {}", e.getMessage());
+            String errorMessage = ErrorsUtils.getErrorMessage(e);
+            result = new ResponseEntity<>(errorMessage, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return result;
+    }
+
+    //http://localhost:8082/programs/id
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping(value = "{programId}")
+    @Operation(summary = "Get Program by ID", description = "Retrieve a concert program with its songs in order")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved program",
+            content = @Content(schema = @Schema(implementation = Program.class)))
+    @ApiResponse(responseCode = "404", description = "Program not found")
+    public ResponseEntity<?> getById(@PathVariable Integer programId) {
+        logger.info(LogUtils.info(CLASS_NAME, "getById", String.format("(%d)", programId)));
+
+        ResponseEntity<?> result;
+        Optional<Program> optionalProgram = programsRepository.findById(programId);
+        if (optionalProgram.isPresent()) {
+            Program program = optionalProgram.get();
+            logger.debug("Retrieved program: {}", program);
+            result = new ResponseEntity<>(program, HttpStatus.OK);
+        } else {
+            logger.warn("Program not found: {}", programId);
+            result = new ResponseEntity<>(String.format("Program not found (%d)", programId), HttpStatus.NOT_FOUND);
+        }
+        return result;
+    }
+
+    // Einfügen einer neuen Ressource, die Songs werden als [{"songId": 1}, ...] in Programmreihenfolge übergeben
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("")
+    @Operation(summary = "Add Program", description = "Add a new concert program, songs are given in playing order")
+    @ApiResponse(responseCode = "200", description = "Program added successfully",
+            content = @Content(schema = @Schema(implementation = Program.class)))
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public ResponseEntity<?> addProgram(@Valid @RequestBody Program program, BindingResult bindingResult) {
+        logger.info(LogUtils.info(CLASS_NAME, "addProgram", String.format("(%s)", program)));
+        return getResponseEntity(program, bindingResult);
+    }
+
+    // Ändern einer vorhandenen Ressource
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("")
+    @Operation(summary = "Update Program", description = "Update an existing concert program, the song list is replaced")
+    @ApiResponse(responseCode = "200", description = "Program updated successfully",
+            content = @Content(schema = @Schema(implementation = Program.class)))
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public ResponseEntity<?> updateProgram(@Valid @RequestBody Program program, BindingResult bindingResult) {
+        logger.info(LogUtils.info(CLASS_NAME, "updateProgram", String.format("(%s)", program)));
+        return getResponseEntity(program, bindingResult);
+    }
+
+    @NotNull
+    private ResponseEntity<?> getResponseEntity(@RequestBody @Valid Program program, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            logger.error("Validation errors occurred: {}", bindingResult.getAllErrors());
+            return new ResponseEntity<>(bindingResult.getAllErrors(), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            Program savedProgram = programsRepository.save(program);
+            logger.debug("Saved program: {}", savedProgram);
+            return new ResponseEntity<>(savedProgram, HttpStatus.OK);
+        } catch (Exception e) {
+            logger.error("Error saving program: {}", e.getMessage());
+            String errorMessage = ErrorsUtils.getErrorMessage(e);
+            return new ResponseEntity<>(errorMessage, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // http://localhost:8082/programs/id (delete)
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping(value = "{programId}")
+    @Operation(summary = "Delete Program", description = "Delete a concert program by its ID, the songs are kept")
+    @ApiResponse(responseCode = "200", description = "Program deleted successfully")
+    @ApiResponse(responseCode = "404", description = "Program not found")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public ResponseEntity<?> deleteProgram(@PathVariable Integer programId) {
+        logger.info(LogUtils.info(CLASS_NAME, "deleteProgram", String.format("(%d)", programId)));
+        Optional<Program> optionalProgram = programsRepository.findById(programId);
+        if (optionalProgram.isEmpty()) {
+            logger.warn("Program not found: {}", programId);
+            return new ResponseEntity<>("Program not found", HttpStatus.NOT_FOUND);
+        }
+        Program program = optionalProgram.get();
+        try {
+            programsRepository.delete(program);
+            logger.debug("Deleted program: {}", program);
+            return new ResponseEntity<>(program, HttpStatus.OK);
+        } catch (Exception e) {
+            logger.error("Error deleting program: {}", e.getMessage());
+            String errorMessage = ErrorsUtils.getErrorMessage(e);
+            return new ResponseEntity<>(errorMessage, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    //http://localhost:8082/programs/id/bundle.zip
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping(value = "{programId}/bundle.zip")
+    @Operation(summary = "Download Program Bundle", description = "Download the files of all songs of a program as one ZIP archive, "
+            + "one folder per song in program order. myParts=true only includes the parts of the logged-in member's instruments "
+            + "and files that belong to no instrument (e.g. the score). store=true skips compression of already compressed files (PDF, MP3)")
+    @ApiResponse(responseCode = "200", description = "Bundle streamed successfully")
+    @ApiResponse(responseCode = "404", description = "Program not found")
+    public ResponseEntity<StreamingResponseBody> downloadBundle(@PathVariable Integer programId,
+                                                                @RequestParam(defaultValue = "false") boolean myParts,
+                                                                @RequestParam(defaultValue = "false") boolean store,
+                                                                @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        logger.info(LogUtils.info(CLASS_NAME, "downloadBundle", String.format("(%d, %b, %b)", programId, myParts, store)));
+
+        Optional<Program> optionalProgram = programsRepository.findById(programId);
+        if (optionalProgram.isEmpty()) {
+            logger.warn("Program not found: {}", programId);
+            return ResponseEntity.notFound().build();
+        }
+        Program program = optionalProgram.get();
+        // everything needed from the database is loaded here, the archive is written after the request thread returned
+        List<Song> songs = new ArrayList<>(program.getSongs());
+        List<List<String>> memberInstruments = new ArrayList<>();
+        List<List<String>> allInstruments = new ArrayList<>();
+        if (myParts) {
+            Optional<Member> member = membersRepository.findById(userDetails.memberId());
+            member.ifPresent(value -> value.getInstruments().forEach(instrument -> memberInstruments.add(words(instrument.getName()))));
+            instrumentsRepository.findAll().forEach(instrument -> allInstruments.add(words(instrument.getName())));
+            // a name without letters would match every file
+            memberInstruments.removeIf(List::isEmpty);
+            allInstruments.removeIf(List::isEmpty);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            Iterator<ArchiveEntry> entries = IntStream.range(0, songs.size())
+                    .boxed()
+                    .filter(position -> minioService.bucketExists(songs.get(position).getArchivNumber()))
+                    .flatMap(position -> {
+                        Song song = songs.get(position);
+                        String folder = String.format("%02d %s/", position + 1, toFileName(song.getTitle()));
+                        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                                minioArchiveService.listEntries(song.getArchivNumber(), folder), Spliterator.ORDERED), false);
+                    })
+                    .filter(entry -> !myParts || isMemberPart(entry.getObjectName(), memberInstruments, allInstruments))
+                    .iterator();
+            minioArchiveService.writeZip(entries, outputStream, store, bundlePrefetch);
+            logger.debug("Bundle of program {} downloaded successfully", programId);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header("Content-Disposition", "attachment; filename=\"" + toFileName(program.getName()) + ".zip\"")
+                .body(body);
+    }
+
+    // A part belongs to an instrument if the words of the file name contain the words of the instrument name, so
+    // "Horn" does not match "Flügelhorn 1.pdf". Files that name none of the instruments (score, notes for the
+    // conductor, ...) are for everybody.
+    private static boolean isMemberPart(String objectName, List<List<String>> memberInstruments, List<List<String>> allInstruments) {
+        List<String> words = words(objectName);
+        if (memberInstruments.stream().anyMatch(instrument -> Collections.indexOfSubList(words, instrument) >= 0)) {
+            return true;
+        }
+        return allInstruments.stream().noneMatch(instrument -> Collections.indexOfSubList(words, instrument) >= 0);
+    }
+
+    // lower case words, split on everything but letters ("2. Trompete_Bb.pdf" -> trompete, bb, pdf)
+    private static List<String> words(String name) {
+        return Arrays.stream(name.toLowerCase().split("[^\\p{L}]+"))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+
+    private static String toFileName(String name) {
+        return name.replaceAll("[\\\\/:*?\"<>|]", "_");
+    }
+
+
+}
@@ -6,6 +6,7 @@ import at.htlklu.bavi.utils.LogUtils;
 import at.htlklu.bavi.model.Publisher;
 import at.htlklu.bavi.repository.PublishersRepository;
 import at.htlklu.bavi.repository.SongsRepository;
+import at.htlklu.bavi.payload.response.PageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,12 +16,15 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 import java.util.Optional;
 
 
@@ -41,23 +45,21 @@ public class PublisherController {
     //http://localhost:8082/publishers
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("")
-    @Operation(summary = "Get All Publishers", description = "Retrieve all publishers")
+    @Operation(summary = "Get All Publishers", description = "Retrieve a page of publishers, sorted with sort=<property>,asc|desc")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved publishers",
             content = @Content(schema = @Schema(implementation = Publisher.class)))
-    @ApiResponse(responseCode = "404", description = "No publishers found")
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<?> getAllPublishers() {
+    public ResponseEntity<?> getAllPublishers(@PageableDefault(sort = "publisherId") Pageable pageable) {
         logger.info(LogUtils.info(CLASS_NAME, "getAllPublishers", "Retrieving all publishers"));
 
         try {
-            List<Publisher> publishers = publishersRepository.findAll();
-            if (!publishers.isEmpty()) {
-                logger.debug("Retrieved {} publishers", publishers.size());
-                return ResponseEntity.ok().body(publishers);
-            } else {
-                logger.warn("No publishers found");
-                return ResponseEntity.notFound().build();
-            }
+            Page<Publisher> publishers = publishersRepository.findAll(pageable);
+            logger.debug("Retrieved {} publishers", publishers.getNumberOfElements());
+            return ResponseEntity.ok().body(new PageResponse<>(publishers));
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error retrieving publishers: {}", e.getMessage());
             String errorMessage = ErrorsUtils.getErrorMessage(e);
@@ -107,7 +109,7 @@ public class PublisherController {
             if (optionalPublisher.isPresent()) {
                 Publisher publisher = optionalPublisher.get();
                 logger.debug("Retrieved songs for publisher: {}", publisher);
-                return ResponseEntity.ok().body(publisher.getSongs());
+                return ResponseEntity.ok().body(songsRepository.findByPublisherPublisherIdOrderByTitle(publisherId));
             } else {
                 logger.warn("Publisher not found: {}", publisherId);
                 return ResponseEntity.notFound().build();
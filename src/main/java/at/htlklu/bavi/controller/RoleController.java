@@ -6,6 +6,7 @@ import at.htlklu.bavi.repository.MembersRepository;
 import at.htlklu.bavi.repository.RoleRepository;
 import at.htlklu.bavi.utils.ErrorsUtils;
 import at.htlklu.bavi.utils.LogUtils;
+import at.htlklu.bavi.payload.response.PageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,12 +16,15 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -40,23 +44,21 @@ public class RoleController {
     //http://localhost:8082/functions
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("")
-    @Operation(summary = "Get All Roles", description = "Retrieve all roles")
+    @Operation(summary = "Get All Roles", description = "Retrieve a page of roles, sorted with sort=<property>,asc|desc")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved roles",
             content = @Content(schema = @Schema(implementation = Role.class)))
-    @ApiResponse(responseCode = "404", description = "No roles found")
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<?> getAllRoles() {
+    public ResponseEntity<?> getAllRoles(@PageableDefault(sort = "roleId") Pageable pageable) {
         logger.info(LogUtils.info(CLASS_NAME, "getAllRoles", "Retrieving all roles"));
 
         try {
-            List<Role> roles = roleRepository.findAll();
-            if (!roles.isEmpty()) {
-                logger.debug("Retrieved {} roles", roles.size());
-                return new ResponseEntity<>(roles, HttpStatus.OK);
-            } else {
-                logger.warn("No roles found");
-                return new ResponseEntity<>("No roles found", HttpStatus.NOT_FOUND);
-            }
+            Page<Role> roles = roleRepository.findAll(pageable);
+            logger.debug("Retrieved {} roles", roles.getNumberOfElements());
+            return new ResponseEntity<>(new PageResponse<>(roles), HttpStatus.OK);
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error retrieving roles: {}", e.getMessage());
             String errorMessage = ErrorsUtils.getErrorMessage(e);
@@ -3,10 +3,20 @@ package at.htlklu.bavi.controller;
 import at.htlklu.bavi.utils.ErrorsUtils;
 import at.htlklu.bavi.utils.LogUtils;
 import at.htlklu.bavi.minio.MinioBucketExistsException;
+import at.htlklu.bavi.minio.MinioHelper;
+import at.htlklu.bavi.minio.MinioJob;
+import at.htlklu.bavi.minio.MinioJobService;
 import at.htlklu.bavi.minio.MinioService;
 import at.htlklu.bavi.minio.MinioServiceException;
+import at.htlklu.bavi.model.Program;
 import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.repository.ProgramsRepository;
+import at.htlklu.bavi.repository.SongSpecifications;
 import at.htlklu.bavi.repository.SongsRepository;
+import at.htlklu.bavi.payload.response.PageResponse;
+import at.htlklu.bavi.payload.response.ScrollResponse;
+import at.htlklu.bavi.payload.response.SongSummary;
+import at.htlklu.bavi.repository.SongCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -16,11 +26,20 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,34 +52,106 @@ public class SongController {
 
     private static final Logger logger = LogManager.getLogger(SongController.class);
     private static final String CLASS_NAME = "SongController";
+    private static final int MAX_SCROLL_SIZE = 100;
 
     @Autowired
     SongsRepository songsRepository;
 
+    @Autowired
+    ProgramsRepository programsRepository;
+
     @Autowired
     MinioService minioService;
 
+    @Autowired
+    MinioJobService minioJobService;
+
 
     //http://localhost:8082/songs
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     @GetMapping("")
-    @Operation(summary = "Get All Songs", description = "Retrieve all songs")
+    @Operation(summary = "Get All Songs", description = "Retrieve a page of songs, filtered by title, genre, composer, "
+            + "publisher and creation date (yyyy-MM-dd), sorted with sort=<property>,asc|desc")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved songs",
-            content = @Content(schema = @Schema(implementation = Song.class)))
-    @ApiResponse(responseCode = "404", description = "No songs found")
+            content = @Content(schema = @Schema(implementation = SongSummary.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid sort property")
     @ApiResponse(responseCode = "500", description = "Internal server error")
-    public ResponseEntity<?> getAllSongs() {
+    public ResponseEntity<?> getAllSongs(@RequestParam(required = false) String title,
+                                         @RequestParam(required = false) Integer genreId,
+                                         @RequestParam(required = false) Integer composerId,
+                                         @RequestParam(required = false) Integer publisherId,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo,
+                                         @PageableDefault(sort = "songId") Pageable pageable) {
         logger.info(LogUtils.info(CLASS_NAME, "getAllSongs", "Retrieving all songs"));
 
         try {
-            List<Song> songs = songsRepository.findAll();
-            if (!songs.isEmpty()) {
-                logger.debug("Retrieved {} songs", songs.size());
-                return new ResponseEntity<>(songs, HttpStatus.OK);
+            Specification<Song> filter = Specification.where(SongSpecifications.titleContains(title))
+                    .and(SongSpecifications.hasGenre(genreId))
+                    .and(SongSpecifications.hasComposer(composerId))
+                    .and(SongSpecifications.hasPublisher(publisherId))
+                    .and(SongSpecifications.createdFrom(createdFrom))
+                    .and(SongSpecifications.createdTo(createdTo));
+            Page<SongSummary> songs = songsRepository.findSummaries(filter, pageable);
+            logger.debug("Retrieved {} songs", songs.getNumberOfElements());
+            return new ResponseEntity<>(new PageResponse<>(songs), HttpStatus.OK);
+        } catch (PropertyReferenceException e) {
+            logger.warn("Invalid sort property: {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Error retrieving songs: {}", e.getMessage());
+            String errorMessage = ErrorsUtils.getErrorMessage(e);
+            return new ResponseEntity<>(errorMessage, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    //http://localhost:8082/songs/scroll?sort=TITLE&size=50
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @GetMapping("scroll")
+    @Operation(summary = "Scroll Songs", description = "Retrieve songs batch by batch for infinite scrolling, sorted by TITLE (A to Z) "
+            + "or DATE_CREATED (newest first), as summaries like the song list. Pass the returned nextToken as token to get the next batch")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved songs",
+            content = @Content(schema = @Schema(implementation = ScrollResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Invalid size or token")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public ResponseEntity<?> scrollSongs(@RequestParam(defaultValue = "TITLE") SongCursor.Sort sort,
+                                         @RequestParam(defaultValue = "50") int size,
+                                         @RequestParam(required = false) String token) {
+        logger.info(LogUtils.info(CLASS_NAME, "scrollSongs", String.format("(%s, %d, %s)", sort, size, token)));
+
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            logger.warn("Invalid scroll size: {}", size);
+            return new ResponseEntity<>("size must be between 1 and " + MAX_SCROLL_SIZE, HttpStatus.BAD_REQUEST);
+        }
+
+        try {
+            SongCursor cursor = token != null ? SongCursor.decode(token) : null;
+            if (cursor != null && cursor.getSort() != sort) {
+                logger.warn("Token of sort {} used with sort {}", cursor.getSort(), sort);
+                return new ResponseEntity<>("Token does not match sort " + sort, HttpStatus.BAD_REQUEST);
+            }
+
+            // one song more than requested tells whether there is a next batch
+            Pageable limit = PageRequest.of(0, size + 1);
+            List<SongSummary> songs;
+            if (sort == SongCursor.Sort.TITLE) {
+                songs = cursor == null ? songsRepository.findSummariesByTitle(limit)
+                        : songsRepository.findByTitleAfter(cursor.getTitle(), cursor.getSongId(), limit);
             } else {
-                logger.warn("No songs found");
-                return new ResponseEntity<>("No songs found", HttpStatus.NOT_FOUND);
+                songs = cursor == null ? songsRepository.findSummariesByDateCreated(limit)
+                        : songsRepository.findByDateCreatedBefore(cursor.getDateCreated(), cursor.getSongId(), limit);
             }
+
+            String nextToken = null;
+            if (songs.size() > size) {
+                songs = songs.subList(0, size);
+                nextToken = SongCursor.after(sort, songs.get(size - 1)).encode();
+            }
+            logger.debug("Retrieved {} songs", songs.size());
+            return new ResponseEntity<>(new ScrollResponse<>(songs, nextToken), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid continuation token: {}", token);
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error retrieving songs: {}", e.getMessage());
             String errorMessage = ErrorsUtils.getErrorMessage(e);
@@ -79,7 +170,7 @@ public class SongController {
         logger.info(LogUtils.info(CLASS_NAME, "getById", String.format("(%d)", songId)));
 
         try {
-            Optional<Song> optionalSong = songsRepository.findById(songId);
+            Optional<Song> optionalSong = songsRepository.findWithDetailsBySongId(songId);
             if (optionalSong.isPresent()) {
                 Song song = optionalSong.get();
                 logger.debug("Retrieved song: {}", song);
@@ -100,7 +191,7 @@ public class SongController {
     @Operation(summary = "Add Song", description = "Add a new song")
     @ApiResponse(responseCode = "201", description = "Song added successfully",
             content = @Content(schema = @Schema(implementation = Song.class)))
-    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "400", description = "Bad request or archive number reserved for the storage")
     @ApiResponse(responseCode = "409", description = "Bucket already exists")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     public ResponseEntity<Object> add(@Valid @RequestBody Song song, BindingResult bindingResult) {
@@ -111,6 +202,10 @@ public class SongController {
             logger.error("Validation errors occurred: {}", bindingResult.getAllErrors());
             return new ResponseEntity<>(bindingResult.getAllErrors(), HttpStatus.BAD_REQUEST);
         }
+        if (minioService.isReservedBucketName(song.getArchivNumber())) {
+            logger.error("Reserved archive number: {}", song.getArchivNumber());
+            return new ResponseEntity<>("Archive number is reserved for the storage: " + song.getArchivNumber(), HttpStatus.BAD_REQUEST);
+        }
 
         try {
             // Create a bucket with the name of the archive number
@@ -151,8 +246,11 @@ public class SongController {
     @Operation(summary = "Update Song", description = "Update an existing song")
     @ApiResponse(responseCode = "200", description = "Song updated successfully",
             content = @Content(schema = @Schema(implementation = Song.class)))
-    @ApiResponse(responseCode = "400", description = "Bad request")
-    @ApiResponse(responseCode = "409", description = "Duplicate entry or data integrity violation")
+    @ApiResponse(responseCode = "202", description = "Archive number changed, files are moved and the song is saved by a background job",
+            content = @Content(schema = @Schema(implementation = MinioJob.class)))
+    @ApiResponse(responseCode = "400", description = "Bad request or archive number reserved for the storage")
+    @ApiResponse(responseCode = "409", description = "Duplicate entry, data integrity violation, bucket already exists "
+            + "or the files of the song are still being moved")
     @ApiResponse(responseCode = "500", description = "Internal server error")
     public ResponseEntity<Object> update(@Valid @RequestBody Song song, BindingResult bindingResult) {
         logger.info(LogUtils.info(CLASS_NAME, "update", String.format("(%s)", song)));
@@ -161,6 +259,10 @@ public class SongController {
             // Validation errors
             return new ResponseEntity<>(bindingResult.getAllErrors(), HttpStatus.BAD_REQUEST);
         }
+        if (minioService.isReservedBucketName(song.getArchivNumber())) {
+            logger.error("Reserved archive number: {}", song.getArchivNumber());
+            return new ResponseEntity<>("Archive number is reserved for the storage: " + song.getArchivNumber(), HttpStatus.BAD_REQUEST);
+        }
 
         try {
             Song existingSong = songsRepository.findById(song.getSongId()).orElse(null);
@@ -168,26 +270,35 @@ public class SongController {
                 return new ResponseEntity<>("Song not found", HttpStatus.NOT_FOUND);
             }
 
-            // Check if the archive number has been changed
+            // the pending move saves its own version of the song when it finishes
+            if (minioJobService.isMovePending(song.getSongId())) {
+                logger.error("Files of song {} are still being moved", song.getSongId());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Files of the song are still being moved, try again later");
+            }
+
+            // Check if the archive number has been changed (bucket names are case-insensitive)
             String oldArchiveNumber = existingSong.getArchivNumber();
             String newArchiveNumber = song.getArchivNumber();
-            if (!oldArchiveNumber.equals(newArchiveNumber)) {
-
-                // Create new bucket with the updated archive number
-                minioService.createBucket(newArchiveNumber);
-                // Retrieve list of files from old bucket
-                List<String> filesInOldBucket = minioService.listFiles(oldArchiveNumber);
-
-                // Iterate through files and copy them to the new bucket
-                for (String file : filesInOldBucket) {
-                    minioService.copyFile(oldArchiveNumber, file, newArchiveNumber, file);
+            if (!MinioHelper.prepareMinioBucketName(oldArchiveNumber).equals(MinioHelper.prepareMinioBucketName(newArchiveNumber))) {
+                if (minioService.bucketExists(newArchiveNumber)) {
+                    logger.error("Bucket already exists for archive number: {}", newArchiveNumber);
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body("Bucket already exists for archive number: " + newArchiveNumber);
                 }
 
-                // Delete old bucket
-                minioService.deleteBucket(oldArchiveNumber);
-
-                // Create new bucket with the updated archive number
-                minioService.createBucket(newArchiveNumber);
+                // The files are moved in the background, the song is only saved once all files are copied,
+                // so it never points to an incomplete bucket
+                MinioJob job = minioJobService.submitMove(song.getSongId(),
+                        String.format("Move files of song %d from %s to %s", song.getSongId(), oldArchiveNumber, newArchiveNumber),
+                        moveJob -> minioService.moveBucket(oldArchiveNumber, newArchiveNumber, moveJob, () -> {
+                            Song updatedSong = songsRepository.save(song);
+                            logger.debug("Updated song: {}", updatedSong);
+                        }));
+                if (job == null) {
+                    logger.error("Files of song {} are still being moved", song.getSongId());
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body("Files of the song are still being moved, try again later");
+                }
+                logger.info("Started job {} to move bucket {} to {}", job.getJobId(), oldArchiveNumber, newArchiveNumber);
+                return ResponseEntity.accepted().location(URI.create("/jobs/" + job.getJobId())).body(job);
             }
 
             // Attempt to update the song
@@ -233,6 +344,12 @@ public class SongController {
                 minioService.deleteBucket(bucketName);
                 logger.debug("Bucket '{}' deleted successfully", bucketName);
 
+                // Remove the song from the concert programs, the remaining songs move up
+                for (Program program : programsRepository.findBySongsContaining(song)) {
+                    program.getSongs().removeIf(programSong -> programSong.getSongId().equals(songId));
+                    programsRepository.save(program);
+                }
+
                 // Delete the song from the repository
                 songsRepository.delete(song);
                 logger.debug("Song with ID '{}' deleted successfully", songId);
@@ -0,0 +1,177 @@
+package at.htlklu.bavi.controller;
+
+import at.htlklu.bavi.minio.MinioServiceException;
+import at.htlklu.bavi.minio.UploadSessionNotFoundException;
+import at.htlklu.bavi.minio.UploadSessionService;
+import at.htlklu.bavi.model.UploadSession;
+import at.htlklu.bavi.payload.request.UploadSessionRequest;
+import at.htlklu.bavi.payload.response.UploadSessionResponse;
+import at.htlklu.bavi.utils.LogUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+// Chunked, resumable uploads: create a session, PUT the numbered chunks (in any order, retries allowed), complete
+@RestController
+@RequestMapping("uploads")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class UploadController {
+
+    private static final Logger logger = LogManager.getLogger(UploadController.class);
+    private static final String CLASS_NAME = "UploadController";
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    // a chunk is held in memory while it is passed on to MinIO
+    @Value("${minio.upload.maxChunkSize:16777216}")
+    private int maxChunkSize;
+
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("")
+    @Operation(summary = "Create Upload Session", description = "Start a resumable upload of a file to the specified song")
+    @ApiResponse(responseCode = "201", description = "Upload session created successfully",
+            content = @Content(schema = @Schema(implementation = UploadSessionResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Bad request")
+    @ApiResponse(responseCode = "500", description = "Failed to create upload session")
+    public ResponseEntity<?> createSession(@Valid @RequestBody UploadSessionRequest uploadRequest, BindingResult bindingResult) {
+        logger.info(LogUtils.info(CLASS_NAME, "createSession", String.format("(%s, %s)", uploadRequest.getArchivNumber(), uploadRequest.getFile())));
+
+        if (bindingResult.hasErrors()) {
+            logger.error("Validation errors occurred: {}", bindingResult.getAllErrors());
+            return new ResponseEntity<>(bindingResult.getAllErrors(), HttpStatus.BAD_REQUEST);
+        }
+
+        try {
+            UploadSession session = uploadSessionService.createSession(uploadRequest.getArchivNumber(), uploadRequest.getFile(), uploadRequest.getContentType());
+            return new ResponseEntity<>(new UploadSessionResponse(session, Map.of()), HttpStatus.CREATED);
+        } catch (MinioServiceException e) {
+            logger.error("Failed to create upload session: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to create upload session");
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("{sessionId}")
+    @Operation(summary = "Get Upload Session", description = "Retrieve the parts received so far, to resume an interrupted upload")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved upload session",
+            content = @Content(schema = @Schema(implementation = UploadSessionResponse.class)))
+    @ApiResponse(responseCode = "404", description = "Upload session not found")
+    @ApiResponse(responseCode = "500", description = "Failed to retrieve upload session")
+    public ResponseEntity<?> getSession(@PathVariable String sessionId) {
+        logger.info(LogUtils.info(CLASS_NAME, "getSession", String.format("(%s)", sessionId)));
+
+        try {
+            UploadSession session = uploadSessionService.getSession(sessionId);
+            return new ResponseEntity<>(new UploadSessionResponse(session, uploadSessionService.getParts(session)), HttpStatus.OK);
+        } catch (UploadSessionNotFoundException e) {
+            logger.warn("Upload session not found: {}", sessionId);
+            return new ResponseEntity<>(String.format("Upload session not found (%s)", sessionId), HttpStatus.NOT_FOUND);
+        } catch (MinioServiceException e) {
+            logger.error("Failed to list parts of upload session {}: {}", sessionId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to retrieve upload session");
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("{sessionId}/{partNumber}")
+    @Operation(summary = "Upload Chunk", description = "Upload chunk number 1 to 10000 as raw request body. "
+            + "Every chunk except the last one must be at least 5 MiB, sending a chunk again replaces it")
+    @ApiResponse(responseCode = "200", description = "Chunk uploaded successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid part number or failed to read chunk")
+    @ApiResponse(responseCode = "404", description = "Upload session not found")
+    @ApiResponse(responseCode = "413", description = "Chunk too large")
+    @ApiResponse(responseCode = "500", description = "Failed to store chunk")
+    public ResponseEntity<String> uploadChunk(@PathVariable String sessionId, @PathVariable int partNumber, HttpServletRequest request) {
+        logger.info(LogUtils.info(CLASS_NAME, "uploadChunk", String.format("(%s, %d)", sessionId, partNumber)));
+
+        if (request.getContentLengthLong() > maxChunkSize) {
+            logger.warn("Chunk {} of session {} too large: {} bytes", partNumber, sessionId, request.getContentLengthLong());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Chunk larger than " + maxChunkSize + " bytes");
+        }
+
+        try (InputStream inputStream = request.getInputStream()) {
+            // read one byte more than allowed to detect oversized chunked requests
+            byte[] data = inputStream.readNBytes(maxChunkSize + 1);
+            if (data.length > maxChunkSize) {
+                logger.warn("Chunk {} of session {} too large", partNumber, sessionId);
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Chunk larger than " + maxChunkSize + " bytes");
+            }
+
+            uploadSessionService.uploadChunk(sessionId, partNumber, data);
+            return ResponseEntity.ok().body("Chunk " + partNumber + " uploaded successfully");
+        } catch (UploadSessionNotFoundException e) {
+            logger.warn("Upload session not found: {}", sessionId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(String.format("Upload session not found (%s)", sessionId));
+        } catch (IllegalArgumentException | IOException e) {
+            logger.error("Failed to upload chunk {} of session {}: {}", partNumber, sessionId, e.getMessage());
+            return ResponseEntity.badRequest().body("Failed to upload chunk: " + e.getMessage());
+        } catch (MinioServiceException e) {
+            logger.error("Failed to store chunk {} of session {}: {}", partNumber, sessionId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to store chunk");
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("{sessionId}/complete")
+    @Operation(summary = "Complete Upload Session", description = "Assemble the uploaded chunks into the final file")
+    @ApiResponse(responseCode = "200", description = "File uploaded successfully")
+    @ApiResponse(responseCode = "400", description = "Upload session has no chunks")
+    @ApiResponse(responseCode = "404", description = "Upload session not found")
+    @ApiResponse(responseCode = "500", description = "Failed to complete upload")
+    public ResponseEntity<String> completeSession(@PathVariable String sessionId) {
+        logger.info(LogUtils.info(CLASS_NAME, "completeSession", String.format("(%s)", sessionId)));
+
+        try {
+            uploadSessionService.completeSession(sessionId);
+            return ResponseEntity.ok().body("File uploaded successfully");
+        } catch (UploadSessionNotFoundException e) {
+            logger.warn("Upload session not found: {}", sessionId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(String.format("Upload session not found (%s)", sessionId));
+        } catch (IllegalArgumentException e) {
+            logger.error("Failed to complete upload session {}: {}", sessionId, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (MinioServiceException e) {
+            logger.error("Failed to complete upload session {}: {}", sessionId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to complete upload");
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping("{sessionId}")
+    @Operation(summary = "Abort Upload Session", description = "Cancel an upload and discard the chunks uploaded so far")
+    @ApiResponse(responseCode = "200", description = "Upload session aborted successfully")
+    @ApiResponse(responseCode = "404", description = "Upload session not found")
+    @ApiResponse(responseCode = "500", description = "Failed to abort upload session")
+    public ResponseEntity<String> abortSession(@PathVariable String sessionId) {
+        logger.info(LogUtils.info(CLASS_NAME, "abortSession", String.format("(%s)", sessionId)));
+
+        try {
+            uploadSessionService.abortSession(sessionId);
+            return ResponseEntity.ok().body("Upload session aborted");
+        } catch (UploadSessionNotFoundException e) {
+            logger.warn("Upload session not found: {}", sessionId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(String.format("Upload session not found (%s)", sessionId));
+        } catch (MinioServiceException e) {
+            logger.error("Failed to abort upload session {}: {}", sessionId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to abort upload session");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package at.htlklu.bavi.minio;
+
+// One file of a ZIP archive: the object to read and the path it gets inside the archive
+public class ArchiveEntry {
+
+    private final String bucketName;
+    private final String objectName;
+    private final String entryName;
+
+    public ArchiveEntry(String bucketName, String objectName, String entryName) {
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.entryName = entryName;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public String getEntryName() {
+        return entryName;
+    }
+}
@@ -0,0 +1,50 @@
+package at.htlklu.bavi.minio;
+
+import io.minio.BucketExistsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveBucketArgs;
+import io.minio.messages.Bucket;
+
+import java.util.List;
+
+// One MinIO bucket per song, the files are stored under their own name
+public class BucketStorageLayout implements StorageLayout {
+
+    private final MinioClient minioClient;
+
+    public BucketStorageLayout(MinioClient minioClient) {
+        this.minioClient = minioClient;
+    }
+
+    @Override
+    public String getBucket(String bucketName) {
+        return bucketName;
+    }
+
+    @Override
+    public String getPrefix(String bucketName) {
+        return "";
+    }
+
+    @Override
+    public boolean exists(String bucketName) throws Exception {
+        return minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
+    }
+
+    // all buckets of the server, including those not holding songs (e.g. previews)
+    @Override
+    public List<String> list() throws Exception {
+        return minioClient.listBuckets().stream().map(Bucket::name).toList();
+    }
+
+    @Override
+    public void create(String bucketName) throws Exception {
+        minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+    }
+
+    @Override
+    public void remove(String bucketName) throws Exception {
+        minioClient.removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+    }
+}
@@ -0,0 +1,177 @@
+package at.htlklu.bavi.minio;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Limits the number of concurrent calls to the storage, so a slow storage ties up at most that many request
+// threads. Further calls wait up to acquireTimeout for a free permit and then fail with MinioBusyException.
+// Only the round-trips to the storage hold a permit: downloads while the object is opened, listings while the
+// next page is fetched. Streaming the content is paced by the client and would otherwise let a few slow
+// downloads exhaust the permits while the storage itself is idle.
+public class BulkheadFileStorage implements FileStorage {
+
+    private final FileStorage delegate;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final Counter rejected;
+
+    public BulkheadFileStorage(FileStorage delegate, int maxConcurrentCalls, Duration acquireTimeout, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.acquireTimeoutMillis = acquireTimeout.toMillis();
+        this.rejected = Counter.builder("minio.bulkhead.rejected").register(meterRegistry);
+        Gauge.builder("minio.bulkhead.active", permits, semaphore -> maxConcurrentCalls - semaphore.availablePermits()).register(meterRegistry);
+    }
+
+    private BulkheadFileStorage(FileStorage delegate, BulkheadFileStorage bulkhead) {
+        this.delegate = delegate;
+        this.permits = bulkhead.permits;
+        this.acquireTimeoutMillis = bulkhead.acquireTimeoutMillis;
+        this.rejected = bulkhead.rejected;
+    }
+
+    // Another storage on the same server, its calls take their permits from this bulkhead
+    public BulkheadFileStorage share(FileStorage delegate) {
+        return new BulkheadFileStorage(delegate, this);
+    }
+
+    @Override
+    public boolean isMinio() {
+        return delegate.isMinio();
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) {
+        return call(() -> delegate.bucketExists(bucketName));
+    }
+
+    @Override
+    public List<String> listBuckets() {
+        return call(delegate::listBuckets);
+    }
+
+    @Override
+    public void createBucket(String bucketName) {
+        run(() -> delegate.createBucket(bucketName));
+    }
+
+    @Override
+    public void removeBucket(String bucketName) {
+        run(() -> delegate.removeBucket(bucketName));
+    }
+
+    @Override
+    public Iterator<StoredFile> listFiles(String bucketName, String prefix, String startAfter, int batchSize) {
+        Iterator<StoredFile> files = call(() -> delegate.listFiles(bucketName, prefix, startAfter, batchSize));
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return call(files::hasNext);
+            }
+
+            @Override
+            public StoredFile next() {
+                return files.next();
+            }
+        };
+    }
+
+    @Override
+    public StoredFile statFile(String bucketName, String objectName) {
+        return call(() -> delegate.statFile(bucketName, objectName));
+    }
+
+    @Override
+    public String uploadFile(String bucketName, String objectName, InputStream inputStream, long objectSize, String contentType,
+                             Map<String, String> userMetadata, String ifMatch, String ifNoneMatch) {
+        return call(() -> delegate.uploadFile(bucketName, objectName, inputStream, objectSize, contentType, userMetadata, ifMatch, ifNoneMatch));
+    }
+
+    @Override
+    public String updateUserMetadata(String bucketName, String objectName, String eTag, String contentType, Map<String, String> userMetadata) {
+        return call(() -> delegate.updateUserMetadata(bucketName, objectName, eTag, contentType, userMetadata));
+    }
+
+    @Override
+    public StorageInputStream downloadFile(String bucketName, String objectName, String matchETag, Long offset, Long length) {
+        return call(() -> delegate.downloadFile(bucketName, objectName, matchETag, offset, length));
+    }
+
+    // only opening holds a permit, transferTo (see FileStorage) writes to the client without one
+    @Override
+    public StorageTransfer openTransfer(String bucketName, String objectName, String matchETag, long offset, long length) {
+        return call(() -> delegate.openTransfer(bucketName, objectName, matchETag, offset, length));
+    }
+
+    @Override
+    public Path getLocalFile(String bucketName, String objectName, String eTag) {
+        return call(() -> delegate.getLocalFile(bucketName, objectName, eTag));
+    }
+
+    @Override
+    public void deleteFile(String bucketName, String objectName) {
+        run(() -> delegate.deleteFile(bucketName, objectName));
+    }
+
+    @Override
+    public List<String> deleteFiles(String bucketName, List<String> objectNames) {
+        return call(() -> delegate.deleteFiles(bucketName, objectNames));
+    }
+
+    @Override
+    public void copyFile(String sourceBucketName, String sourceObjectName, String destinationBucketName, String destinationObjectName) {
+        run(() -> delegate.copyFile(sourceBucketName, sourceObjectName, destinationBucketName, destinationObjectName));
+    }
+
+    // signing a URL does not call the storage
+    @Override
+    public String getPresignedDownloadUrl(String bucketName, String objectName, int expirySeconds, String fileName) {
+        return delegate.getPresignedDownloadUrl(bucketName, objectName, expirySeconds, fileName);
+    }
+
+    @Override
+    public String getPresignedUploadUrl(String bucketName, String objectName, int expirySeconds) {
+        return delegate.getPresignedUploadUrl(bucketName, objectName, expirySeconds);
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new MinioBusyException("Too many concurrent storage calls");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MinioServiceException("Interrupted while waiting for the storage", e);
+        }
+    }
+
+    private <T> T call(Supplier<T> storageCall) {
+        acquire();
+        try {
+            return storageCall.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void run(Runnable storageCall) {
+        acquire();
+        try {
+            storageCall.run();
+        } finally {
+            permits.release();
+        }
+    }
+}
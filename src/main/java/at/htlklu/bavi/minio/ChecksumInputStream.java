@@ -0,0 +1,111 @@
+package at.htlklu.bavi.minio;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+// Computes the checksum of everything read and compares it when the end of the stream is reached. The last byte
+// is held back until then and a mismatch fails the read with MinioChecksumException instead, so a download of a
+// corrupt file ends one byte short of its Content-Length (or without its last chunk) and the client sees it as
+// incomplete. Streams closed before their end are not verified.
+public class ChecksumInputStream extends FilterInputStream {
+
+    private final MessageDigest digest = MinioChecksum.newDigest();
+    private final String expectedChecksum;
+    private final String description;
+    private long count;
+    private String checksum;
+    // last byte read from the stream and not returned yet, -1 if none
+    private int held = -1;
+
+    public ChecksumInputStream(InputStream inputStream, String expectedChecksum, String description) {
+        super(inputStream);
+        this.expectedChecksum = expectedChecksum;
+        this.description = description;
+    }
+
+    // number of bytes read so far
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buffer = new byte[1];
+        return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xff;
+    }
+
+    // Returns the held byte followed by the bytes read now, except for the last one, which is held instead
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (held == -1) {
+            held = readByte();
+            if (held == -1) {
+                return -1;
+            }
+        }
+        if (length == 1) {
+            int next = readByte();
+            buffer[offset] = (byte) held;
+            held = next;
+            return 1;
+        }
+        int read = in.read(buffer, offset + 1, length - 1);
+        if (read == -1) {
+            verify();
+            buffer[offset] = (byte) held;
+            held = -1;
+            return 1;
+        }
+        digest.update(buffer, offset + 1, read);
+        count += read;
+        buffer[offset] = (byte) held;
+        held = buffer[offset + read] & 0xff;
+        return read;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            verify();
+        } else {
+            digest.update((byte) b);
+            count++;
+        }
+        return b;
+    }
+
+    // skipped bytes have to be digested as well
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, MinioHelper.STREAM_BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    // fails again on every further read at the end of the stream
+    private void verify() throws MinioChecksumException {
+        if (checksum == null) {
+            checksum = MinioChecksum.toHex(digest);
+        }
+        if (!checksum.equalsIgnoreCase(expectedChecksum)) {
+            throw new MinioChecksumException("Checksum mismatch (expected " + expectedChecksum + ", got " + checksum + "): " + description);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package at.htlklu.bavi.minio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Object storage behind MinioService: MinIO (MinioFileStorage) or a local directory (LocalFileStorage).
+// Bucket names are already prepared (see MinioHelper.prepareMinioBucketName). Missing objects are reported with
+// FileNotFoundException, failed conditional writes with MinioPreconditionFailedException, everything else
+// with MinioServiceException.
+public interface FileStorage {
+
+    // Deduplication, resumable uploads and the layout migration use MinIO directly and need the files there
+    boolean isMinio();
+
+    boolean bucketExists(String bucketName);
+
+    List<String> listBuckets();
+
+    void createBucket(String bucketName);
+
+    // The bucket has to be empty
+    void removeBucket(String bucketName);
+
+    // Objects in key order, read lazily. prefix and startAfter may be null; batchSize is the number of
+    // objects fetched at once where the storage lists in pages.
+    Iterator<StoredFile> listFiles(String bucketName, String prefix, String startAfter, int batchSize);
+
+    StoredFile statFile(String bucketName, String objectName);
+
+    // objectSize -1 for content of unknown length. The object is replaced atomically, ifMatch (ETag) and
+    // ifNoneMatch ("*") make the write conditional. Returns the ETag of the stored object.
+    String uploadFile(String bucketName, String objectName, InputStream inputStream, long objectSize, String contentType,
+                      Map<String, String> userMetadata, String ifMatch, String ifNoneMatch);
+
+    // Replaces the user metadata of the object with metadata that is only known once its content was stored (e.g. the
+    // checksum), if it still has the given ETag. Fails with MinioPreconditionFailedException otherwise. The content is
+    // not sent again. Returns the ETag of the updated object.
+    String updateUserMetadata(String bucketName, String objectName, String eTag, String contentType, Map<String, String> userMetadata);
+
+    // Reads the object, or length bytes from offset (both may be null). With matchETag the read fails with
+    // FileNotFoundException unless the object still has this ETag.
+    StorageInputStream downloadFile(String bucketName, String objectName, String matchETag, Long offset, Long length);
+
+    // Opens length bytes from offset of the object to be written to a client, LocalFileStorage reads them from a
+    // FileChannel instead of an InputStream. With matchETag the open fails with FileNotFoundException unless the
+    // object still has this ETag.
+    StorageTransfer openTransfer(String bucketName, String objectName, String matchETag, long offset, long length);
+
+    // Writes length bytes from offset of the object to the output stream, returns the number of bytes written
+    default long transferTo(String bucketName, String objectName, String matchETag, long offset, long length,
+                            OutputStream outputStream) throws IOException {
+        try (StorageTransfer transfer = openTransfer(bucketName, objectName, matchETag, offset, length)) {
+            return transfer.transferTo(outputStream);
+        }
+    }
+
+    // The object as a file on the local disk if it still has the given ETag, so it can be sent with sendfile.
+    // Null if the storage keeps its objects elsewhere.
+    default Path getLocalFile(String bucketName, String objectName, String eTag) {
+        return null;
+    }
+
+    void deleteFile(String bucketName, String objectName);
+
+    // Removes the objects and returns the names of those that could not be removed
+    List<String> deleteFiles(String bucketName, List<String> objectNames);
+
+    void copyFile(String sourceBucketName, String sourceObjectName, String destinationBucketName, String destinationObjectName);
+
+    String getPresignedDownloadUrl(String bucketName, String objectName, int expirySeconds, String fileName);
+
+    String getPresignedUploadUrl(String bucketName, String objectName, int expirySeconds);
+}
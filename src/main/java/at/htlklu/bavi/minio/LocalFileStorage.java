@@ -0,0 +1,566 @@
+package at.htlklu.bavi.minio;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Striped;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.stream.Stream;
+
+// FileStorage in a local directory for single-node installs and tests: buckets are directories, objects are files
+// (keys containing "/" are stored in subdirectories) holding exactly the content, so they can be sent with sendfile
+// (see getLocalFile). The ETag, the content type and the user metadata are kept in a sidecar properties file under
+// .meta/<bucket>/, named by the SHA-256 of the object name. Uploads are written to temporary files under .tmp first;
+// the content and its sidecar are moved into place together under the write lock of the object, and are read
+// together under its read lock, so readers never see a partly written object or the metadata of another version.
+// Files without sidecar (e.g. copied into the directory by hand) get an ETag from their size and modification time.
+// Files handed out for sendfile are hard links under .links/<bucket>/, named by their ETag, so a later replace of the
+// object cannot change the content that is sent.
+public class LocalFileStorage implements FileStorage {
+
+    private static final Logger logger = LogManager.getLogger(LocalFileStorage.class);
+    private static final String TEMP_DIRECTORY = ".tmp";
+    private static final String META_DIRECTORY = ".meta";
+    private static final String LINK_DIRECTORY = ".links";
+    private static final String ETAG = "etag";
+    private static final String CONTENT_TYPE = "content-type";
+    private static final String META_PREFIX = "meta.";
+
+    private final Path root;
+    private final Path tempDirectory;
+    private final Path metaDirectory;
+    private final Path linkDirectory;
+    // content and sidecar of an object change together under the write lock of its path
+    private final Striped<ReadWriteLock> locks = Striped.readWriteLock(64);
+
+    public LocalFileStorage(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.tempDirectory = this.root.resolve(TEMP_DIRECTORY);
+        this.metaDirectory = this.root.resolve(META_DIRECTORY);
+        this.linkDirectory = this.root.resolve(LINK_DIRECTORY);
+        try {
+            Files.createDirectories(tempDirectory);
+            Files.createDirectories(metaDirectory);
+            Files.createDirectories(linkDirectory);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error creating storage directory: " + root, e);
+        }
+    }
+
+    @Override
+    public boolean isMinio() {
+        return false;
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) {
+        return Files.isDirectory(getBucketPath(bucketName));
+    }
+
+    @Override
+    public List<String> listBuckets() {
+        try (Stream<Path> paths = Files.list(root)) {
+            return paths.filter(Files::isDirectory)
+                    .filter(path -> !path.equals(tempDirectory) && !path.equals(metaDirectory) && !path.equals(linkDirectory))
+                    .map(path -> path.getFileName().toString())
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new MinioServiceException("Error listing buckets", e);
+        }
+    }
+
+    @Override
+    public void createBucket(String bucketName) {
+        try {
+            Files.createDirectories(getBucketPath(bucketName));
+        } catch (IOException e) {
+            throw new MinioServiceException("Error creating bucket: " + bucketName, e);
+        }
+    }
+
+    @Override
+    public void removeBucket(String bucketName) {
+        Path bucketPath = getBucketPath(bucketName);
+        // only empty subdirectories may be left, deleting a directory that still contains files fails
+        try (Stream<Path> paths = Files.walk(bucketPath)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+            // sidecars and links of files removed without deleteFile
+            deleteTree(metaDirectory.resolve(bucketPath.getFileName()));
+            deleteTree(linkDirectory.resolve(bucketPath.getFileName()));
+        } catch (DirectoryNotEmptyException e) {
+            throw new MinioServiceException("Bucket is not empty: " + bucketName, e);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error removing bucket: " + bucketName, e);
+        }
+    }
+
+    @Override
+    public Iterator<StoredFile> listFiles(String bucketName, String prefix, String startAfter, int batchSize) {
+        Path bucketPath = getBucketPath(bucketName);
+        List<String> objectNames;
+        try (Stream<Path> paths = Files.walk(bucketPath)) {
+            objectNames = paths.filter(Files::isRegularFile)
+                    .map(path -> getObjectName(bucketPath, path))
+                    .filter(objectName -> prefix == null || objectName.startsWith(prefix))
+                    .filter(objectName -> startAfter == null || objectName.compareTo(startAfter) > 0)
+                    .sorted()
+                    .toList();
+        } catch (NoSuchFileException e) {
+            throw new MinioServiceException("Bucket does not exist: " + bucketName, e);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error listing files in bucket: " + bucketName, e);
+        }
+
+        // the file info is read while iterating, files deleted in the meantime are skipped
+        Iterator<String> names = objectNames.iterator();
+        return new AbstractIterator<>() {
+            @Override
+            protected StoredFile computeNext() {
+                while (names.hasNext()) {
+                    try {
+                        return statFile(bucketName, names.next());
+                    } catch (FileNotFoundException e) {
+                        logger.debug("File deleted while listing bucket {}: {}", bucketName, e.getMessage());
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    @Override
+    public StoredFile statFile(String bucketName, String objectName) {
+        Path path = getPath(bucketName, objectName);
+        Lock lock = locks.get(path).readLock();
+        lock.lock();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return readMetadata(bucketName, objectName, attributes).toStoredFile(objectName, attributes);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("File not found in bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error reading file info from bucket: " + bucketName + ", object: " + objectName, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String uploadFile(String bucketName, String objectName, InputStream inputStream, long objectSize, String contentType,
+                             Map<String, String> userMetadata, String ifMatch, String ifNoneMatch) {
+        if (!bucketExists(bucketName)) {
+            throw new MinioServiceException("Bucket does not exist: " + bucketName);
+        }
+        // unique per write; a copy keeps it, like the ETag of a copied object in S3
+        String eTag = UUID.randomUUID().toString().replace("-", "");
+        Path tempFile = tempDirectory.resolve(UUID.randomUUID().toString());
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                long size = MinioHelper.copy(inputStream, outputStream);
+                if (objectSize >= 0 && size != objectSize) {
+                    throw new MinioServiceException("Expected " + objectSize + " bytes but received " + size + ", bucket: " + bucketName + ", object: " + objectName);
+                }
+            }
+            replace(bucketName, objectName, tempFile, new Metadata(eTag, contentType, userMetadata), ifMatch, ifNoneMatch);
+            return eTag;
+        } catch (IOException e) {
+            throw new MinioServiceException("Error uploading file to bucket: " + bucketName + ", object: " + objectName, e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    // Moves the complete temporary file over the object and writes its sidecar, so readers see either the old or
+    // the new version
+    private void replace(String bucketName, String objectName, Path tempFile, Metadata metadata, String ifMatch, String ifNoneMatch) throws IOException {
+        Path path = getPath(bucketName, objectName);
+        Path sidecar = getSidecarPath(bucketName, objectName);
+        Path tempSidecar = writeTempSidecar(metadata);
+        Lock lock = locks.get(path).writeLock();
+        lock.lock();
+        try {
+            if (ifMatch != null || ifNoneMatch != null) {
+                String currentETag = Files.exists(path) ? statFile(bucketName, objectName).getETag() : null;
+                boolean matches = ifMatch == null || (currentETag != null && currentETag.equals(ifMatch.replace("\"", "")));
+                boolean noneMatches = ifNoneMatch == null || currentETag == null;
+                if (!matches || !noneMatches) {
+                    throw new MinioPreconditionFailedException("File was changed in the meantime, bucket: " + bucketName + ", object: " + objectName);
+                }
+            }
+            Files.createDirectories(path.getParent());
+            Files.createDirectories(sidecar.getParent());
+            Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempSidecar, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            deleteLinks(bucketName, objectName);
+        } finally {
+            lock.unlock();
+            deleteQuietly(tempSidecar);
+        }
+    }
+
+    // Only the sidecar is written again, the content and with it the ETag stay the same
+    @Override
+    public String updateUserMetadata(String bucketName, String objectName, String eTag, String contentType, Map<String, String> userMetadata) {
+        Path path = getPath(bucketName, objectName);
+        Path sidecar = getSidecarPath(bucketName, objectName);
+        Path tempSidecar = null;
+        Lock lock = locks.get(path).writeLock();
+        lock.lock();
+        try {
+            Metadata metadata = readMetadata(bucketName, objectName, Files.readAttributes(path, BasicFileAttributes.class));
+            if (!metadata.eTag.equals(eTag)) {
+                throw new MinioPreconditionFailedException("File was changed in the meantime, bucket: " + bucketName + ", object: " + objectName);
+            }
+            tempSidecar = writeTempSidecar(new Metadata(eTag, contentType, userMetadata));
+            Files.createDirectories(sidecar.getParent());
+            Files.move(tempSidecar, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return eTag;
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("File not found in bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error updating file in bucket: " + bucketName + ", object: " + objectName, e);
+        } finally {
+            lock.unlock();
+            if (tempSidecar != null) {
+                deleteQuietly(tempSidecar);
+            }
+        }
+    }
+
+    // The channel is opened under the read lock and keeps the version it opened when the file is replaced later
+    @Override
+    public StorageInputStream downloadFile(String bucketName, String objectName, String matchETag, Long offset, Long length) {
+        Path path = getPath(bucketName, objectName);
+        FileChannel channel = null;
+        Lock lock = locks.get(path).readLock();
+        lock.lock();
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            Metadata metadata = readMetadata(bucketName, objectName, Files.readAttributes(path, BasicFileAttributes.class));
+            if (matchETag != null && !matchETag.equals(metadata.eTag)) {
+                throw new FileNotFoundException("File was changed, bucket: " + bucketName + ", object: " + objectName);
+            }
+            channel.position(offset != null ? offset : 0);
+            InputStream inputStream = Channels.newInputStream(channel);
+            return new StorageInputStream(length != null ? ByteStreams.limit(inputStream, length) : inputStream, metadata.userMetadata);
+        } catch (NoSuchFileException e) {
+            closeQuietly(channel);
+            throw new FileNotFoundException("File not found in bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new MinioServiceException("Error downloading file from bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public StorageTransfer openTransfer(String bucketName, String objectName, String matchETag, long offset, long length) {
+        Path path = getPath(bucketName, objectName);
+        FileChannel channel = null;
+        Lock lock = locks.get(path).readLock();
+        lock.lock();
+        try {
+            // an open channel keeps reading the checked version, a replace moves a new file into place
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            if (matchETag != null && !matchETag.equals(readMetadata(bucketName, objectName, Files.readAttributes(path, BasicFileAttributes.class)).eTag)) {
+                throw new FileNotFoundException("File was changed, bucket: " + bucketName + ", object: " + objectName);
+            }
+        } catch (NoSuchFileException e) {
+            closeQuietly(channel);
+            throw new FileNotFoundException("File not found in bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new MinioServiceException("Error downloading file from bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        FileChannel openChannel = channel;
+        return new StorageTransfer() {
+            @Override
+            public long transferTo(OutputStream outputStream) throws IOException {
+                return MinioHelper.copy(openChannel, offset, length, outputStream);
+            }
+
+            @Override
+            public void close() throws IOException {
+                openChannel.close();
+            }
+        };
+    }
+
+    // A hard link to the content of the object if it still has the given ETag. The link is created under the read
+    // lock and keeps this version when the object is replaced before the container opens it. A replace or delete
+    // removes the links of the object, a container opening one after that fails instead of sending other content.
+    // Null if the file system has no hard links, the file is then streamed.
+    @Override
+    public Path getLocalFile(String bucketName, String objectName, String eTag) {
+        Path path = getPath(bucketName, objectName);
+        Lock lock = locks.get(path).readLock();
+        lock.lock();
+        try {
+            Metadata metadata = readMetadata(bucketName, objectName, Files.readAttributes(path, BasicFileAttributes.class));
+            if (!metadata.eTag.equals(eTag)) {
+                return null;
+            }
+            Path link = getLinkPath(bucketName, objectName).resolve(eTag);
+            if (!Files.exists(link)) {
+                Files.createDirectories(link.getParent());
+                Files.createLink(link, path);
+            }
+            return link;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (FileAlreadyExistsException e) {
+            // linked by a concurrent request for the same version
+            return getLinkPath(bucketName, objectName).resolve(eTag);
+        } catch (UnsupportedOperationException e) {
+            logger.debug("No hard links in {}, files are streamed", root);
+            return null;
+        } catch (IOException e) {
+            throw new MinioServiceException("Error reading file info from bucket: " + bucketName + ", object: " + objectName, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteFile(String bucketName, String objectName) {
+        Path path = getPath(bucketName, objectName);
+        Path sidecar = getSidecarPath(bucketName, objectName);
+        Lock lock = locks.get(path).writeLock();
+        lock.lock();
+        try {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(sidecar);
+            deleteLinks(bucketName, objectName);
+            deleteEmptyParents(getBucketPath(bucketName), path);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error deleting file from bucket: " + bucketName + ", object: " + objectName, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> deleteFiles(String bucketName, List<String> objectNames) {
+        List<String> failed = new ArrayList<>();
+        for (String objectName : objectNames) {
+            try {
+                deleteFile(bucketName, objectName);
+            } catch (MinioServiceException e) {
+                logger.error("Error deleting object {} from bucket {}", objectName, bucketName, e);
+                failed.add(objectName);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public void copyFile(String sourceBucketName, String sourceObjectName, String destinationBucketName, String destinationObjectName) {
+        Path sourcePath = getPath(sourceBucketName, sourceObjectName);
+        Path tempFile = tempDirectory.resolve(UUID.randomUUID().toString());
+        try {
+            Metadata metadata;
+            Lock lock = locks.get(sourcePath).readLock();
+            lock.lock();
+            try {
+                metadata = readMetadata(sourceBucketName, sourceObjectName, Files.readAttributes(sourcePath, BasicFileAttributes.class));
+                Files.copy(sourcePath, tempFile);
+            } finally {
+                lock.unlock();
+            }
+            replace(destinationBucketName, destinationObjectName, tempFile, metadata, null, null);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("File not found in bucket: " + sourceBucketName + ", object: " + sourceObjectName, e);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error copying file from bucket: " + sourceBucketName + ", object: " + sourceObjectName
+                    + " to bucket: " + destinationBucketName + ", object: " + destinationObjectName, e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(String bucketName, String objectName, int expirySeconds, String fileName) {
+        throw new MinioServiceException("Presigned URLs are not available with the local storage");
+    }
+
+    @Override
+    public String getPresignedUploadUrl(String bucketName, String objectName, int expirySeconds) {
+        throw new MinioServiceException("Presigned URLs are not available with the local storage");
+    }
+
+    private Path getBucketPath(String bucketName) {
+        Path bucketPath = root.resolve(bucketName).normalize();
+        if (!bucketPath.getParent().equals(root) || bucketPath.equals(tempDirectory) || bucketPath.equals(metaDirectory)
+                || bucketPath.equals(linkDirectory)) {
+            throw new MinioServiceException("Invalid bucket name: " + bucketName);
+        }
+        return bucketPath;
+    }
+
+    // object names must not leave their bucket directory (e.g. with "../")
+    private Path getPath(String bucketName, String objectName) {
+        Path bucketPath = getBucketPath(bucketName);
+        Path path = bucketPath.resolve(objectName).normalize();
+        if (!path.startsWith(bucketPath) || path.equals(bucketPath)) {
+            throw new MinioServiceException("Invalid object name: " + objectName);
+        }
+        return path;
+    }
+
+    // hashed, so the sidecar of "a" cannot collide with a directory of "a.properties/b"
+    private Path getSidecarPath(String bucketName, String objectName) {
+        return metaDirectory.resolve(getBucketPath(bucketName).getFileName()).resolve(getObjectHash(bucketName, objectName) + ".properties");
+    }
+
+    // the directory of the hard links to the versions of the object
+    private Path getLinkPath(String bucketName, String objectName) {
+        return linkDirectory.resolve(getBucketPath(bucketName).getFileName()).resolve(getObjectHash(bucketName, objectName));
+    }
+
+    private String getObjectHash(String bucketName, String objectName) {
+        String objectKey = getObjectName(getBucketPath(bucketName), getPath(bucketName, objectName));
+        return Hashing.sha256().hashString(objectKey, StandardCharsets.UTF_8).toString();
+    }
+
+    private static String getObjectName(Path bucketPath, Path path) {
+        return bucketPath.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private static void deleteTree(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path child : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(child);
+            }
+        } catch (NoSuchFileException e) {
+            // nothing to remove
+        }
+    }
+
+    // a link that is left behind is never handed out again, its ETag belongs to a replaced version
+    private void deleteLinks(String bucketName, String objectName) {
+        try {
+            deleteTree(getLinkPath(bucketName, objectName));
+        } catch (IOException e) {
+            logger.warn("Error removing links of object {} in bucket {}", objectName, bucketName, e);
+        }
+    }
+
+    private static void deleteEmptyParents(Path bucketPath, Path path) throws IOException {
+        for (Path parent = path.getParent(); parent != null && !parent.equals(bucketPath); parent = parent.getParent()) {
+            try {
+                Files.deleteIfExists(parent);
+            } catch (DirectoryNotEmptyException e) {
+                return;
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Error removing temporary file {}", path, e);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Error closing file", e);
+            }
+        }
+    }
+
+    private Path writeTempSidecar(Metadata metadata) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(ETAG, metadata.eTag);
+        if (metadata.contentType != null) {
+            properties.setProperty(CONTENT_TYPE, metadata.contentType);
+        }
+        metadata.userMetadata.forEach((key, value) -> properties.setProperty(META_PREFIX + key, value));
+
+        Path tempSidecar = tempDirectory.resolve(UUID.randomUUID().toString());
+        try (OutputStream outputStream = Files.newOutputStream(tempSidecar)) {
+            properties.store(outputStream, null);
+        } catch (IOException e) {
+            deleteQuietly(tempSidecar);
+            throw e;
+        }
+        return tempSidecar;
+    }
+
+    // Called under the lock of the object, with the attributes of its content file
+    private Metadata readMetadata(String bucketName, String objectName, BasicFileAttributes attributes) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(getSidecarPath(bucketName, objectName))) {
+            properties.load(inputStream);
+        } catch (NoSuchFileException e) {
+            String eTag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+            return new Metadata(eTag, null, Map.of());
+        }
+        Map<String, String> userMetadata = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(META_PREFIX)) {
+                userMetadata.put(name.substring(META_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+        return new Metadata(properties.getProperty(ETAG), properties.getProperty(CONTENT_TYPE), userMetadata);
+    }
+
+    private static class Metadata {
+
+        private final String eTag;
+        private final String contentType;
+        private final Map<String, String> userMetadata;
+
+        private Metadata(String eTag, String contentType, Map<String, String> userMetadata) {
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.userMetadata = userMetadata;
+        }
+
+        private StoredFile toStoredFile(String objectName, BasicFileAttributes attributes) {
+            return new StoredFile(objectName, attributes.size(), eTag, attributes.lastModifiedTime().toInstant(), contentType, userMetadata);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package at.htlklu.bavi.minio;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Writes MinIO objects into a ZIP archive on the fly. The objects are copied chunk by chunk, nothing is
+// buffered as a whole or written to temp files. While one object is written, the next ones are already
+// requested, so the latency of opening an object is hidden behind the transfer of the previous one.
+@Service
+public class MinioArchiveService {
+
+    private static final Logger logger = LogManager.getLogger(MinioArchiveService.class);
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private MinioDedupService minioDedupService;
+
+    // number of objects opened ahead of the one currently written
+    @Value("${minio.archive.prefetch:2}")
+    private int prefetch;
+
+    @Value("${minio.archive.threads:8}")
+    private int threads;
+
+    private ExecutorService prefetchExecutor;
+
+    @PostConstruct
+    public void init() {
+        prefetchExecutor = Executors.newFixedThreadPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdown();
+    }
+
+    // All files of a bucket, read lazily from the listing
+    public Iterator<ArchiveEntry> listEntries(String bucketName) {
+        return listEntries(bucketName, "");
+    }
+
+    // All files of a bucket, placed in the archive under the given path prefix (e.g. "01 Title/")
+    public Iterator<ArchiveEntry> listEntries(String bucketName, String pathPrefix) {
+        String preparedBucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            return minioDedupService.listFileNames(preparedBucketName).stream()
+                    .map(fileName -> new ArchiveEntry(preparedBucketName, fileName, pathPrefix + fileName))
+                    .iterator();
+        }
+        Iterator<StoredFile> files = fileStorage.listFiles(preparedBucketName, null, null, MinioService.MAX_LIST_KEYS);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return files.hasNext();
+            }
+
+            @Override
+            public ArchiveEntry next() {
+                String objectName = files.next().getName();
+                return new ArchiveEntry(preparedBucketName, objectName, pathPrefix + objectName);
+            }
+        };
+    }
+
+    public void writeZip(Iterator<ArchiveEntry> entries, OutputStream outputStream, boolean store) throws IOException {
+        writeZip(entries, outputStream, store, prefetch);
+    }
+
+    // store writes already compressed files (PDFs, MP3s, ...) uncompressed, compressing them again only costs CPU
+    // time. Compressible files (see MinioCodec) are still compressed. The stored entries are deflate entries with
+    // compression level 0: real STORED entries need size and CRC before their data.
+    public void writeZip(Iterator<ArchiveEntry> entries, OutputStream outputStream, boolean store, int prefetch) throws IOException {
+        long count = 0;
+        try (Prefetcher prefetcher = new Prefetcher(entries, prefetch + 1)) {
+            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+
+            ArchiveEntry entry;
+            while ((entry = prefetcher.peek()) != null) {
+                try (InputStream inputStream = prefetcher.next()) {
+                    boolean compress = !store || MinioCodec.isCompressible(entry.getObjectName(), null);
+                    zipOutputStream.setLevel(compress ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+                    zipOutputStream.putNextEntry(new ZipEntry(entry.getEntryName()));
+                    MinioHelper.copy(inputStream, zipOutputStream);
+                    zipOutputStream.closeEntry();
+                }
+                count++;
+            }
+            zipOutputStream.finish();
+            zipOutputStream.flush();
+            logger.debug("Wrote ZIP archive with {} files", count);
+        }
+    }
+
+    // Keeps up to window objects opened ahead, in the order of the entries
+    private class Prefetcher implements AutoCloseable {
+
+        private final Iterator<ArchiveEntry> entries;
+        private final int window;
+        private final Deque<ArchiveEntry> pendingEntries = new ArrayDeque<>();
+        private final Deque<Future<InputStream>> pendingStreams = new ArrayDeque<>();
+        // streams opened ahead and not yet handed out, closed if the archive is aborted
+        private final Set<InputStream> opened = new HashSet<>();
+        private boolean closed;
+
+        Prefetcher(Iterator<ArchiveEntry> entries, int window) {
+            this.entries = entries;
+            this.window = window;
+            fill();
+        }
+
+        ArchiveEntry peek() {
+            return pendingEntries.peek();
+        }
+
+        InputStream next() throws IOException {
+            ArchiveEntry entry = pendingEntries.poll();
+            Future<InputStream> pendingStream = pendingStreams.poll();
+            InputStream inputStream;
+            try {
+                inputStream = pendingStream.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while opening " + entry.getObjectName(), e);
+            } catch (ExecutionException e) {
+                throw new MinioServiceException("Error reading file from bucket: " + entry.getBucketName() + ", object: " + entry.getObjectName(), e.getCause());
+            }
+            synchronized (opened) {
+                opened.remove(inputStream);
+            }
+            // open the next object while this one is transferred
+            fill();
+            return inputStream;
+        }
+
+        private void fill() {
+            while (pendingEntries.size() < window && entries.hasNext()) {
+                ArchiveEntry entry = entries.next();
+                pendingEntries.add(entry);
+                pendingStreams.add(prefetchExecutor.submit(() -> open(entry)));
+            }
+        }
+
+        private InputStream open(ArchiveEntry entry) throws IOException {
+            InputStream inputStream = minioService.downloadFile(entry.getBucketName(), entry.getObjectName());
+            synchronized (opened) {
+                if (closed) {
+                    inputStream.close();
+                    throw new IOException("Archive aborted");
+                }
+                opened.add(inputStream);
+            }
+            return inputStream;
+        }
+
+        // the client aborted or an object failed, release the connections that were opened ahead
+        @Override
+        public void close() {
+            pendingStreams.forEach(pendingStream -> pendingStream.cancel(false));
+            synchronized (opened) {
+                closed = true;
+                for (InputStream inputStream : opened) {
+                    try {
+                        inputStream.close();
+                    } catch (IOException e) {
+                        logger.debug("Error closing prefetched object", e);
+                    }
+                }
+                opened.clear();
+            }
+        }
+    }
+}
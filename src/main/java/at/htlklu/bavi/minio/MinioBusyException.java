@@ -0,0 +1,10 @@
+package at.htlklu.bavi.minio;
+
+// No storage call could be started within the wait time of the bulkhead (see BulkheadFileStorage), the request
+// should be retried later
+public class MinioBusyException extends MinioServiceException {
+
+    public MinioBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,61 @@
+package at.htlklu.bavi.minio;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+// Short-lived cache for bucket existence and file listings, keyed by the normalized bucket name.
+// Writes through MinioService invalidate the affected bucket, changes made directly in MinIO
+// (e.g. presigned uploads) become visible after the TTL at the latest
+@Component
+public class MinioCache {
+
+    private final Cache<String, Boolean> bucketExists;
+    private final Cache<String, List<String>> listings;
+
+    public MinioCache(MeterRegistry meterRegistry,
+                      @Value("${minio.cache.ttl:PT30S}") Duration ttl,
+                      @Value("${minio.cache.maxBuckets:1000}") long maxBuckets) {
+        bucketExists = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxBuckets)
+                .recordStats()
+                .build();
+        listings = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxBuckets)
+                .recordStats()
+                .build();
+
+        // exposed as cache.gets{cache=...,result=hit|miss}, cache.evictions, ... on /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, bucketExists, "minioBucketExists");
+        CaffeineCacheMetrics.monitor(meterRegistry, listings, "minioListings");
+    }
+
+    public boolean bucketExists(String bucketName, Function<String, Boolean> loader) {
+        return bucketExists.get(MinioHelper.prepareMinioBucketName(bucketName), loader);
+    }
+
+    public List<String> listFiles(String bucketName, Function<String, List<String>> loader) {
+        return listings.get(MinioHelper.prepareMinioBucketName(bucketName), loader);
+    }
+
+    // An object was added, replaced or removed
+    public void invalidateListing(String bucketName) {
+        listings.invalidate(MinioHelper.prepareMinioBucketName(bucketName));
+    }
+
+    // The bucket was created or removed
+    public void invalidateBucket(String bucketName) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        bucketExists.invalidate(bucketName);
+        listings.invalidate(bucketName);
+    }
+}
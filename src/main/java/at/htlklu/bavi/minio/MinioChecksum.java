@@ -0,0 +1,34 @@
+package at.htlklu.bavi.minio;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+// SHA-256 of the stored bytes (after encoding, see MinioCodec), computed while a file is uploaded and kept in its
+// user metadata. Deduplicated files are stored under this hash, so it is their checksum as well.
+public class MinioChecksum {
+
+    private static final String CHECKSUM = "sha256";
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static Map<String, String> getMetadata(String checksum) {
+        return Map.of(CHECKSUM, checksum);
+    }
+
+    // Checksum of an object from its user metadata, null for files stored before checksums were recorded
+    public static String getChecksum(Map<String, String> userMetadata) {
+        return userMetadata.get(CHECKSUM);
+    }
+}
@@ -0,0 +1,11 @@
+package at.htlklu.bavi.minio;
+
+import java.io.IOException;
+
+// Thrown by ChecksumInputStream at the end of a stored file whose content does not match its checksum
+public class MinioChecksumException extends IOException {
+
+    public MinioChecksumException(String message) {
+        super(message);
+    }
+}
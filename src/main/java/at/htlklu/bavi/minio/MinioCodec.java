@@ -0,0 +1,108 @@
+package at.htlklu.bavi.minio;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.InflaterOutputStream;
+
+// Compressible files (MusicXML, MIDI, text) are stored deflated, the codec is recorded in the user metadata.
+// On MinIO it is also stored as Content-Encoding of the object, so presigned downloads are decoded by the client
+// like any compressed HTTP response.
+public class MinioCodec {
+
+    public static final String DEFLATE = "deflate";
+
+    private static final String CODEC = "codec";
+    private static final String ORIGINAL_SIZE = "original-size";
+
+    // application/vnd.recordare.musicxml is the zipped .mxl, uncompressed MusicXML is matched by +xml
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of("application/xml", "application/json", "application/x-midi",
+            "audio/midi", "audio/mid", "audio/x-midi");
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("musicxml", "xml", "mid", "midi", "txt", "csv", "json", "abc", "ly");
+
+    // Already compressed formats (PDF, MP3, images, compressed MusicXML .mxl) are stored as they are
+    public static boolean isCompressible(String objectName, String contentType) {
+        if (contentType != null) {
+            String type = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            if (type.startsWith("text/") || type.endsWith("+xml") || COMPRESSIBLE_TYPES.contains(type)) {
+                return true;
+            }
+            if (!type.isEmpty() && !type.equals("application/octet-stream")) {
+                return false;
+            }
+        }
+        // browsers send unknown types as octet-stream, then the file extension decides
+        String name = objectName.toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSIBLE_EXTENSIONS.contains(name.substring(dot + 1));
+    }
+
+    // User metadata to store with an encoded object, originalSize -1 if not known before the upload
+    public static Map<String, String> getMetadata(long originalSize) {
+        Map<String, String> userMetadata = new HashMap<>();
+        userMetadata.put(CODEC, DEFLATE);
+        if (originalSize >= 0) {
+            userMetadata.put(ORIGINAL_SIZE, String.valueOf(originalSize));
+        }
+        return userMetadata;
+    }
+
+    // Codec of an object from its user metadata (see StoredFile), null if it is stored as it is
+    public static String getCodec(Map<String, String> userMetadata) {
+        return userMetadata.get(CODEC);
+    }
+
+    // Size of the decoded content, -1 if it is unknown
+    public static long getOriginalSize(Map<String, String> userMetadata) {
+        String size = userMetadata.get(ORIGINAL_SIZE);
+        return size != null ? Long.parseLong(size) : -1;
+    }
+
+    public static InputStream encode(InputStream inputStream) {
+        return new DeflaterInputStream(inputStream);
+    }
+
+    public static InputStream decode(InputStream inputStream) {
+        return new InflaterInputStream(inputStream);
+    }
+
+    // Decodes what is written to it, must be finished or closed after the last write
+    public static InflaterOutputStream decode(OutputStream outputStream) {
+        return new InflaterOutputStream(outputStream);
+    }
+
+    // Whether an Accept-Encoding header allows sending the stored bytes as they are. The codec itself takes
+    // precedence over "*", either is refused with q=0.
+    public static boolean isAccepted(String acceptEncoding, String codec) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase(codec)) {
+                return !isRefused(parts);
+            }
+            if (name.equals("*")) {
+                wildcard = !isRefused(parts);
+            }
+        }
+        return wildcard;
+    }
+
+    private static boolean isRefused(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] parameter = parts[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q") && parameter[1].trim().matches("0(\\.0*)?")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,9 +1,21 @@
 package at.htlklu.bavi.minio;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class MinioConfig {
@@ -17,11 +29,105 @@ public class MinioConfig {
     @Value("${minio.secretKey}")
     private String secretKey;
 
+    @Value("${minio.layout.type:bucket}")
+    private String layoutType;
+
+    @Value("${minio.layout.bucket:songs}")
+    private String layoutBucket;
+
+    @Value("${minio.storage.type:minio}")
+    private String storageType;
+
+    @Value("${minio.storage.directory:data}")
+    private String storageDirectory;
+
+    @Value("${minio.upload.partSize:5242880}")
+    private long uploadPartSize;
+
+    @Value("${minio.http.maxConnections:64}")
+    private int maxConnections;
+
+    @Value("${minio.http.maxIdleConnections:16}")
+    private int maxIdleConnections;
+
+    @Value("${minio.http.keepAlive:PT5M}")
+    private Duration keepAlive;
+
+    @Value("${minio.http.connectTimeout:PT5S}")
+    private Duration connectTimeout;
+
+    // time without data on a connection, not the duration of a whole transfer
+    @Value("${minio.http.readTimeout:PT1M}")
+    private Duration readTimeout;
+
+    @Value("${minio.http.writeTimeout:PT1M}")
+    private Duration writeTimeout;
+
+    @Value("${minio.bulkhead.maxConcurrentCalls:48}")
+    private int maxConcurrentCalls;
+
+    @Value("${minio.bulkhead.acquireTimeout:PT2S}")
+    private Duration acquireTimeout;
+
+    // One connection pool for the blocking and the async client; the dispatcher limits the requests in flight
+    // of the async client, the blocking calls are limited by the bulkhead (see BulkheadFileStorage)
+    @Bean
+    public OkHttpClient minioHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConnections);
+        dispatcher.setMaxRequestsPerHost(maxConnections);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .protocols(List.of(Protocol.HTTP_1_1))
+                .build();
+    }
+
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
                 .build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    public MinioMultipartClient minioMultipartClient(OkHttpClient minioHttpClient) {
+        return new MinioMultipartClient(MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build());
+    }
+
+    // "bucket": one bucket per song, "prefix": one shared bucket with a key prefix per song
+    @Bean
+    public StorageLayout storageLayout(MinioClient minioClient) {
+        if ("prefix".equals(layoutType)) {
+            return new PrefixStorageLayout(minioClient, layoutBucket);
+        }
+        return new BucketStorageLayout(minioClient);
+    }
+
+    // "minio": files are stored in MinIO, "local": in a directory of the server (single-node installs, tests)
+    @Bean
+    @Primary
+    public BulkheadFileStorage fileStorage(MinioClient minioClient, MinioMultipartClient minioMultipartClient, StorageLayout storageLayout,
+                                           MeterRegistry meterRegistry) {
+        FileStorage fileStorage = "local".equals(storageType)
+                ? new LocalFileStorage(Path.of(storageDirectory))
+                : new MinioFileStorage(minioClient, minioMultipartClient, storageLayout, uploadPartSize);
+        return new BulkheadFileStorage(fileStorage, maxConcurrentCalls, acquireTimeout, meterRegistry);
+    }
+
+    // MinIO with buckets and keys used as they are, without StorageLayout: the blob bucket of the deduplication and
+    // objects written by their stored key (resumable uploads). Limited by the same bulkhead as the song storage.
+    @Bean
+    public FileStorage blobStorage(MinioClient minioClient, MinioMultipartClient minioMultipartClient, BulkheadFileStorage fileStorage) {
+        return fileStorage.share(new MinioFileStorage(minioClient, minioMultipartClient, new BucketStorageLayout(minioClient), uploadPartSize));
+    }
+}
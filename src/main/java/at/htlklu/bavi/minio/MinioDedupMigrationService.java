@@ -0,0 +1,94 @@
+package at.htlklu.bavi.minio;
+
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.repository.SongsRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Moves the files stored in the song buckets before deduplication was enabled into the blob store. With
+// deduplication enabled only files with a manifest entry (SongFile) are visible, so these files stay hidden
+// until they are migrated. Every step is safe to repeat: a file is only removed from the song bucket once its
+// manifest entry exists, and files without one are picked up again by the next run.
+@Service
+public class MinioDedupMigrationService {
+
+    private static final Logger logger = LogManager.getLogger(MinioDedupMigrationService.class);
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private MinioDedupService minioDedupService;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private MinioJobService minioJobService;
+
+    @Autowired
+    private SongsRepository songsRepository;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public MinioJob start() {
+        if (!minioDedupService.isEnabled()) {
+            throw new IllegalStateException("Deduplication is not enabled");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A deduplication migration is already running");
+        }
+        return minioJobService.submit("Move stored song files into the blob store", job -> {
+            try {
+                migrate(job);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void migrate(MinioJob job) {
+        List<String> bucketNames = songsRepository.findAll().stream()
+                .map(Song::getArchivNumber)
+                .filter(Objects::nonNull)
+                .map(MinioHelper::prepareMinioBucketName)
+                .distinct()
+                .sorted()
+                .toList();
+        job.addTotal(bucketNames.size());
+        logger.info("Migrating the stored files of {} songs into the blob store", bucketNames.size());
+
+        int migrated = 0;
+        for (String bucketName : bucketNames) {
+            if (fileStorage.bucketExists(bucketName)) {
+                migrated += migrateBucket(bucketName);
+            }
+            job.addProcessed(1);
+        }
+        job.setMessage(migrated + " files moved into the blob store");
+    }
+
+    private int migrateBucket(String bucketName) {
+        // files with a manifest entry are resumable uploads that are just being imported
+        Set<String> manifest = new HashSet<>(minioDedupService.listFileNames(bucketName));
+        int migrated = 0;
+        Iterator<StoredFile> files = fileStorage.listFiles(bucketName, null, null, MinioService.MAX_LIST_KEYS);
+        while (files.hasNext()) {
+            StoredFile file = files.next();
+            if (!manifest.contains(file.getName()) && minioService.migrateFile(bucketName, file)) {
+                migrated++;
+            }
+        }
+        logger.debug("Migrated song {}: {} files moved into the blob store", bucketName, migrated);
+        return migrated;
+    }
+}
@@ -0,0 +1,246 @@
+package at.htlklu.bavi.minio;
+
+import at.htlklu.bavi.model.FileBlob;
+import at.htlklu.bavi.model.SongFile;
+import at.htlklu.bavi.repository.FileBlobsRepository;
+import at.htlklu.bavi.repository.SongFilesRepository;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// Content-addressed storage: every distinct file content is stored once in the blob bucket under its SHA-256 hash,
+// the SongFile manifest maps the file names of a song to these hashes. FileBlob.refCount counts the manifest
+// entries per blob. Removing the last reference only leaves the count at zero; the object is removed later by the
+// sweeper in a transaction of its own, under a row lock on the blob, so a blob cannot be removed while another
+// upload starts to reference it again. Uploads make no storage call while they hold row locks.
+@Service
+public class MinioDedupService {
+
+    private static final Logger logger = LogManager.getLogger(MinioDedupService.class);
+
+    // the blob bucket is not a song, its objects are addressed as they are stored
+    @Autowired
+    @Qualifier("blobStorage")
+    private FileStorage blobStorage;
+
+    @Autowired
+    private SongFilesRepository songFilesRepository;
+
+    @Autowired
+    private FileBlobsRepository fileBlobsRepository;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${minio.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${minio.dedup.bucket:blobs}")
+    private String blobBucket;
+
+    @PostConstruct
+    public void init() {
+        if (enabled && !fileStorage.isMinio()) {
+            // the blobs are stored in MinIO directly
+            logger.warn("Deduplication is only available with the MinIO storage, it is disabled");
+            enabled = false;
+        }
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!blobStorage.bucketExists(blobBucket)) {
+                blobStorage.createBucket(blobBucket);
+                logger.info("Created blob bucket: {}", blobBucket);
+            }
+        } catch (RuntimeException e) {
+            // MinIO may not be up yet, the first upload fails instead of the application start
+            logger.error("Error creating blob bucket: {}", blobBucket, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getBlobBucket() {
+        return blobBucket;
+    }
+
+    public Optional<SongFile> getFile(String bucketName, String fileName) {
+        return songFilesRepository.findByBucketNameAndFileName(MinioHelper.prepareMinioBucketName(bucketName), fileName);
+    }
+
+    public List<String> listFileNames(String bucketName) {
+        return songFilesRepository.findByBucketNameOrderByFileName(MinioHelper.prepareMinioBucketName(bucketName)).stream()
+                .map(SongFile::getFileName)
+                .toList();
+    }
+
+    public List<SongFile> listFiles(String bucketName, String startAfter, int limit) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        PageRequest page = PageRequest.of(0, limit);
+        return startAfter == null
+                ? songFilesRepository.findByBucketNameOrderByFileName(bucketName, page)
+                : songFilesRepository.findByBucketNameAndFileNameGreaterThanOrderByFileName(bucketName, startAfter, page);
+    }
+
+    // Points fileName of the song at the content with the given hash. The content is copied from
+    // sourceBucket/sourceObject (as stored, see blobStorage) into the blob bucket unless a blob with this hash
+    // already exists. The reference is added first in a transaction of its own, so the sweeper leaves the blob alone
+    // while it is copied; the copy runs outside of any transaction and only the manifest update holds row locks.
+    // ifMatch / ifNoneMatch are checked against the current manifest entry under a row lock. Should the application
+    // stop before the manifest is updated, the blob keeps a reference too many and is not swept.
+    public void commitFile(String bucketName, String fileName, String hash, long size, String contentType,
+                           String sourceBucket, String sourceObject, String ifMatch, String ifNoneMatch) {
+        transactionTemplate.executeWithoutResult(status -> fileBlobsRepository.addReference(hash, size));
+        try {
+            storeBlob(hash, size, sourceBucket, sourceObject);
+            transactionTemplate.executeWithoutResult(status -> updateManifest(bucketName, fileName, hash, size, contentType, ifMatch, ifNoneMatch));
+        } catch (RuntimeException e) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> removeReference(hash));
+            } catch (RuntimeException releaseException) {
+                e.addSuppressed(releaseException);
+            }
+            throw e;
+        }
+    }
+
+    private void storeBlob(String hash, long size, String sourceBucket, String sourceObject) {
+        if (blobExists(hash)) {
+            logger.debug("Blob {} already stored, {} bytes deduplicated", hash, size);
+            return;
+        }
+        blobStorage.copyFile(sourceBucket, sourceObject, blobBucket, hash);
+        logger.debug("Stored new blob {} ({} bytes)", hash, size);
+    }
+
+    private void updateManifest(String bucketName, String fileName, String hash, long size, String contentType,
+                                String ifMatch, String ifNoneMatch) {
+        String preparedBucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        Optional<SongFile> existing = songFilesRepository.findForUpdate(preparedBucketName, fileName);
+        checkPrecondition(existing, preparedBucketName, fileName, ifMatch, ifNoneMatch);
+
+        SongFile songFile = existing.orElseGet(() -> new SongFile(preparedBucketName, fileName));
+        String oldHash = songFile.getHash();
+        songFile.setHash(hash);
+        songFile.setSize(size);
+        songFile.setContentType(contentType);
+        songFile.setLastModified(Instant.now());
+        songFilesRepository.save(songFile);
+
+        if (oldHash != null) {
+            removeReference(oldHash);
+        }
+    }
+
+    @Transactional
+    public void deleteFile(String bucketName, String fileName) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        Optional<SongFile> songFile = songFilesRepository.findForUpdate(bucketName, fileName);
+        if (songFile.isPresent()) {
+            songFilesRepository.delete(songFile.get());
+            songFilesRepository.flush();
+            removeReference(songFile.get().getHash());
+        }
+    }
+
+    @Transactional
+    public int deleteFiles(String bucketName) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        List<SongFile> songFiles = songFilesRepository.findByBucketNameOrderByFileName(bucketName);
+        songFilesRepository.deleteAll(songFiles);
+        songFilesRepository.flush();
+        for (SongFile songFile : songFiles) {
+            removeReference(songFile.getHash());
+        }
+        return songFiles.size();
+    }
+
+    // The blobs stay where they are, only the manifest entries change their bucket
+    @Transactional
+    public int moveFiles(String sourceBucketName, String destinationBucketName) {
+        return songFilesRepository.moveFiles(MinioHelper.prepareMinioBucketName(sourceBucketName),
+                MinioHelper.prepareMinioBucketName(destinationBucketName));
+    }
+
+    private void removeReference(String hash) {
+        fileBlobsRepository.removeReference(hash);
+    }
+
+    @Scheduled(fixedDelayString = "${minio.dedup.sweepInterval:PT1H}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        int removed = 0;
+        for (String hash : fileBlobsRepository.findUnreferencedHashes()) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> removeBlob(hash)))) {
+                    removed++;
+                }
+            } catch (Exception e) {
+                logger.warn("Error removing unreferenced blob {}", hash, e);
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} unreferenced blobs", removed);
+        }
+    }
+
+    // The object is removed while the row is locked, a concurrent upload of the same content waits in addReference
+    // and then stores the blob again. Should the commit fail, the row remains without its object, which is harmless:
+    // the next upload of this content finds no object and stores it again, or the next sweep removes the row.
+    private boolean removeBlob(String hash) {
+        Optional<FileBlob> blob = fileBlobsRepository.findForUpdate(hash);
+        if (blob.isEmpty() || blob.get().getRefCount() > 0) {
+            return false;
+        }
+        blobStorage.deleteFile(blobBucket, hash);
+        fileBlobsRepository.delete(blob.get());
+        logger.debug("Removed unreferenced blob {}", hash);
+        return true;
+    }
+
+    private boolean blobExists(String hash) {
+        try {
+            blobStorage.statFile(blobBucket, hash);
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static void checkPrecondition(Optional<SongFile> existing, String bucketName, String fileName, String ifMatch, String ifNoneMatch) {
+        boolean failed = false;
+        if (ifNoneMatch != null) {
+            failed = existing.isPresent() && (ifNoneMatch.equals("*") || stripQuotes(ifNoneMatch).equals(existing.get().getHash()));
+        }
+        if (ifMatch != null) {
+            failed |= existing.isEmpty() || !(ifMatch.equals("*") || stripQuotes(ifMatch).equals(existing.get().getHash()));
+        }
+        if (failed) {
+            throw new MinioPreconditionFailedException("File was changed in the meantime, bucket: " + bucketName + ", object: " + fileName);
+        }
+    }
+
+    private static String stripQuotes(String eTag) {
+        return eTag.replace("\"", "");
+    }
+}
@@ -0,0 +1,17 @@
+package at.htlklu.bavi.minio;
+
+import java.util.List;
+
+public class MinioDeleteException extends MinioServiceException {
+
+    private final List<String> failedObjects;
+
+    public MinioDeleteException(String message, List<String> failedObjects) {
+        super(message + ", objects: " + failedObjects);
+        this.failedObjects = List.copyOf(failedObjects);
+    }
+
+    public List<String> getFailedObjects() {
+        return failedObjects;
+    }
+}
@@ -0,0 +1,245 @@
+package at.htlklu.bavi.minio;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Size-bounded LRU cache of downloaded objects on the local disk. Entries are keyed by bucket, object and ETag,
+// so a changed object is never served from an old copy; invalidation only frees the space early.
+// The cache directory is cleared on startup.
+@Component
+public class MinioDiskCache {
+
+    private static final Logger logger = LogManager.getLogger(MinioDiskCache.class);
+
+    @Value("${minio.cache.disk.enabled:false}")
+    private boolean enabled;
+
+    @Value("${minio.cache.disk.directory:${java.io.tmpdir}/bavi-cache}")
+    private Path directory;
+
+    @Value("${minio.cache.disk.maxBytes:1073741824}")
+    private long maxBytes;
+
+    // larger objects are not cached, so a single download cannot evict the whole cache
+    @Value("${minio.cache.disk.maxFileBytes:104857600}")
+    private long maxFileBytes;
+
+    // access order, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, CachedFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+
+    public MinioDiskCache(MeterRegistry meterRegistry) {
+        hits = Counter.builder("minio.disk.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("minio.disk.cache.requests").tag("result", "miss").register(meterRegistry);
+        bytesSaved = Counter.builder("minio.disk.cache.bytes.saved")
+                .description("Bytes served from the disk cache instead of MinIO")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("minio.disk.cache.hit.ratio", this, cache -> {
+            double total = cache.hits.count() + cache.misses.count();
+            return total == 0 ? 0 : cache.hits.count() / total;
+        }).register(meterRegistry);
+        Gauge.builder("minio.disk.cache.size", this, MinioDiskCache::getTotalBytes).baseUnit("bytes").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+        logger.info("Disk cache enabled in {} ({} bytes)", directory, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    // Writes length bytes from offset of the cached copy, false if the object is not cached
+    public boolean transferTo(String bucketName, String objectName, String eTag, long offset, long length, OutputStream outputStream) throws IOException {
+        CachedFile cachedFile;
+        synchronized (this) {
+            cachedFile = files.get(key(bucketName, objectName, eTag));
+        }
+        if (cachedFile == null) {
+            misses.increment();
+            return false;
+        }
+
+        // an entry evicted in the meantime stays readable through the open channel
+        try (FileChannel channel = FileChannel.open(cachedFile.path, StandardOpenOption.READ)) {
+            length = MinioHelper.copy(channel, offset, length, outputStream);
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        bytesSaved.increment(length);
+        logger.debug("Served {} bytes of bucket: {}, object: {} from disk cache", length, bucketName, objectName);
+        return true;
+    }
+
+    // The cached copy of the given version, to be sent with sendfile, null if it is not cached. The file is counted
+    // as served from the cache, an eviction before it is sent aborts the response.
+    public Path getCachedFile(String bucketName, String objectName, String eTag, long length) {
+        CachedFile cachedFile;
+        synchronized (this) {
+            cachedFile = files.get(key(bucketName, objectName, eTag));
+        }
+        if (cachedFile == null) {
+            return null;
+        }
+        hits.increment();
+        bytesSaved.increment(length);
+        logger.debug("Sending {} bytes of bucket: {}, object: {} from disk cache", length, bucketName, objectName);
+        return cachedFile.path;
+    }
+
+    // Copies the object to the output stream and keeps a copy on disk for the next request
+    public long copyAndCache(String bucketName, String objectName, String eTag, long size, InputStream inputStream, OutputStream outputStream) throws IOException {
+        if (size > maxFileBytes || size > maxBytes) {
+            return MinioHelper.copy(inputStream, outputStream);
+        }
+
+        Path tempFile = Files.createTempFile(directory, "download", ".tmp");
+        try {
+            long total;
+            try (OutputStream fileOutputStream = Files.newOutputStream(tempFile)) {
+                byte[] buffer = new byte[MinioHelper.STREAM_BUFFER_SIZE];
+                total = 0;
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, read);
+                    fileOutputStream.write(buffer, 0, read);
+                    total += read;
+                }
+                outputStream.flush();
+            }
+            if (total == size) {
+                put(bucketName, objectName, eTag, tempFile, size);
+                tempFile = null;
+            }
+            return total;
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    private void put(String bucketName, String objectName, String eTag, Path tempFile, long size) throws IOException {
+        String key = key(bucketName, objectName, eTag);
+        Path path = directory.resolve(key);
+        synchronized (this) {
+            if (files.containsKey(key)) {
+                // another request cached the same version first
+                Files.deleteIfExists(tempFile);
+                return;
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            files.put(key, new CachedFile(MinioHelper.prepareMinioBucketName(bucketName), objectName, path, size));
+            totalBytes += size;
+
+            Iterator<Map.Entry<String, CachedFile>> iterator = files.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                CachedFile eldest = iterator.next().getValue();
+                iterator.remove();
+                delete(eldest);
+            }
+        }
+        logger.debug("Cached bucket: {}, object: {} on disk ({} bytes)", bucketName, objectName, size);
+    }
+
+    public synchronized void invalidate(String bucketName, String objectName) {
+        String preparedBucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        removeIf(cachedFile -> cachedFile.bucketName.equals(preparedBucketName) && cachedFile.objectName.equals(objectName));
+    }
+
+    public synchronized void invalidateBucket(String bucketName) {
+        String preparedBucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        removeIf(cachedFile -> cachedFile.bucketName.equals(preparedBucketName));
+    }
+
+    private void removeIf(Predicate<CachedFile> predicate) {
+        Iterator<CachedFile> iterator = files.values().iterator();
+        while (iterator.hasNext()) {
+            CachedFile cachedFile = iterator.next();
+            if (predicate.test(cachedFile)) {
+                iterator.remove();
+                delete(cachedFile);
+            }
+        }
+    }
+
+    private void delete(CachedFile cachedFile) {
+        totalBytes -= cachedFile.size;
+        try {
+            Files.deleteIfExists(cachedFile.path);
+        } catch (IOException e) {
+            logger.warn("Error deleting cached file {}", cachedFile.path, e);
+        }
+    }
+
+    // object names may contain any character, the file name is a hash of the key
+    private static String key(String bucketName, String objectName, String eTag) {
+        String key = MinioHelper.prepareMinioBucketName(bucketName) + "/" + objectName + "/" + eTag;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CachedFile {
+        private final String bucketName;
+        private final String objectName;
+        private final Path path;
+        private final long size;
+
+        CachedFile(String bucketName, String objectName, Path path, long size) {
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
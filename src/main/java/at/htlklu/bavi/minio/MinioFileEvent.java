@@ -0,0 +1,30 @@
+package at.htlklu.bavi.minio;
+
+// Published by MinioService when a file was stored or removed. objectName is null if the whole bucket was
+// created, filled (moved there) or removed.
+public class MinioFileEvent {
+
+    public enum Type {STORED, DELETED}
+
+    private final Type type;
+    private final String bucketName;
+    private final String objectName;
+
+    public MinioFileEvent(Type type, String bucketName, String objectName) {
+        this.type = type;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+}
@@ -0,0 +1,401 @@
+package at.htlklu.bavi.minio;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.Directive;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.MinioException;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
+import okhttp3.Headers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// FileStorage on MinIO, the songs are mapped to buckets and keys by the StorageLayout
+public class MinioFileStorage implements FileStorage {
+
+    private static final Logger logger = LogManager.getLogger(MinioFileStorage.class);
+    private static final String PRECONDITION_FAILED = "PreconditionFailed";
+    private static final String META_PREFIX = "x-amz-meta-";
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final MinioClient minioClient;
+    private final MinioMultipartClient minioMultipartClient;
+    private final StorageLayout storageLayout;
+    private final long uploadPartSize;
+
+    public MinioFileStorage(MinioClient minioClient, MinioMultipartClient minioMultipartClient, StorageLayout storageLayout, long uploadPartSize) {
+        this.minioClient = minioClient;
+        this.minioMultipartClient = minioMultipartClient;
+        this.storageLayout = storageLayout;
+        this.uploadPartSize = uploadPartSize;
+    }
+
+    @Override
+    public boolean isMinio() {
+        return true;
+    }
+
+    @Override
+    public boolean bucketExists(String bucketName) {
+        try {
+            return storageLayout.exists(bucketName);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error checking bucket: " + bucketName, e);
+        }
+    }
+
+    @Override
+    public List<String> listBuckets() {
+        try {
+            return storageLayout.list();
+        } catch (Exception e) {
+            throw new MinioServiceException("Error listing buckets", e);
+        }
+    }
+
+    @Override
+    public void createBucket(String bucketName) {
+        try {
+            storageLayout.create(bucketName);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error creating bucket: " + bucketName, e);
+        }
+    }
+
+    @Override
+    public void removeBucket(String bucketName) {
+        try {
+            storageLayout.remove(bucketName);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error removing bucket: " + bucketName, e);
+        }
+    }
+
+    @Override
+    public Iterator<StoredFile> listFiles(String bucketName, String prefix, String startAfter, int batchSize) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(storageLayout.getBucket(bucketName))
+                .prefix(storageLayout.getPrefix(bucketName) + (prefix != null ? prefix : ""))
+                .maxKeys(Math.min(batchSize, MinioService.MAX_LIST_KEYS))
+                .recursive(true)
+                .includeUserMetadata(true);
+        if (startAfter != null) {
+            args.startAfter(storageLayout.getObject(bucketName, startAfter));
+        }
+
+        Iterator<Result<Item>> results = minioClient.listObjects(args.build()).iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return results.hasNext();
+            }
+
+            @Override
+            public StoredFile next() {
+                try {
+                    return toStoredFile(bucketName, results.next().get());
+                } catch (Exception e) {
+                    throw new MinioServiceException("Error listing files in bucket: " + bucketName, e);
+                }
+            }
+        };
+    }
+
+    private StoredFile toStoredFile(String bucketName, Item item) {
+        // MinIO returns the content type with the user metadata, other S3 servers leave it out
+        Map<String, String> userMetadata = getUserMetadata(item.userMetadata());
+        String contentType = userMetadata.remove("content-type");
+        String eTag = item.etag() != null ? item.etag().replace("\"", "") : null;
+        return new StoredFile(storageLayout.getFileName(bucketName, item.objectName()), item.size(), eTag,
+                item.lastModified().toInstant(), contentType, userMetadata);
+    }
+
+    @Override
+    public StoredFile statFile(String bucketName, String objectName) {
+        try {
+            StatObjectResponse stat = minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(storageLayout.getBucket(bucketName))
+                    .object(storageLayout.getObject(bucketName, objectName))
+                    .build());
+            return new StoredFile(objectName, stat.size(), stat.etag(), stat.lastModified().toInstant(), stat.contentType(),
+                    getUserMetadata(stat.userMetadata()));
+        } catch (ErrorResponseException e) {
+            throw new FileNotFoundException("File not found in bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error reading file info from bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    @Override
+    public String uploadFile(String bucketName, String objectName, InputStream inputStream, long objectSize, String contentType,
+                             Map<String, String> userMetadata, String ifMatch, String ifNoneMatch) {
+        Map<String, String> conditions = new HashMap<>();
+        if (ifMatch != null) {
+            conditions.put("If-Match", ifMatch);
+        }
+        if (ifNoneMatch != null) {
+            conditions.put("If-None-Match", ifNoneMatch);
+        }
+        Map<String, String> headers = new HashMap<>();
+        userMetadata.forEach((key, value) -> headers.put(META_PREFIX + key, value));
+        // encoded files carry their Content-Encoding, so presigned downloads are decoded by the client
+        String codec = MinioCodec.getCodec(userMetadata);
+        if (codec != null) {
+            headers.put("Content-Encoding", codec);
+        }
+
+        String storedBucketName = storageLayout.getBucket(bucketName);
+        String storedObjectName = storageLayout.getObject(bucketName, objectName);
+        try {
+            ObjectWriteResponse response;
+            if (!conditions.isEmpty() && (objectSize < 0 || objectSize > MIN_PART_SIZE)) {
+                // the SDK does not pass conditional headers on to the completion of a multipart upload
+                response = uploadConditionalMultipart(storedBucketName, storedObjectName, inputStream, contentType, headers, conditions);
+            } else {
+                response = minioClient.putObject(PutObjectArgs.builder()
+                        .bucket(storedBucketName)
+                        .object(storedObjectName)
+                        .stream(inputStream, objectSize, objectSize < 0 ? uploadPartSize : -1)
+                        .contentType(contentType)
+                        .headers(headers)
+                        .extraHeaders(conditions)
+                        .build());
+            }
+            return response.etag();
+        } catch (ErrorResponseException e) {
+            if (PRECONDITION_FAILED.equals(e.errorResponse().code())) {
+                throw new MinioPreconditionFailedException("File was changed in the meantime, bucket: " + bucketName + ", object: " + objectName, e);
+            }
+            throw new MinioServiceException("Error uploading file to bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error uploading file to bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    // A copy of the object onto itself with replaced metadata, MinIO only rewrites the metadata then. The caller
+    // passes the complete metadata, so the object is not read before.
+    @Override
+    public String updateUserMetadata(String bucketName, String objectName, String eTag, String contentType, Map<String, String> userMetadata) {
+        String storedBucketName = storageLayout.getBucket(bucketName);
+        String storedObjectName = storageLayout.getObject(bucketName, objectName);
+        Map<String, String> headers = new HashMap<>();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        String codec = MinioCodec.getCodec(userMetadata);
+        if (codec != null) {
+            headers.put("Content-Encoding", codec);
+        }
+        try {
+            // the copy result quotes its ETag, uploads and stats return it without quotes
+            return minioClient.copyObject(CopyObjectArgs.builder()
+                    .source(CopySource.builder().bucket(storedBucketName).object(storedObjectName).matchETag(eTag).build())
+                    .bucket(storedBucketName)
+                    .object(storedObjectName)
+                    .headers(headers)
+                    .userMetadata(userMetadata)
+                    .metadataDirective(Directive.REPLACE)
+                    .build()).etag().replace("\"", "");
+        } catch (ErrorResponseException e) {
+            if (PRECONDITION_FAILED.equals(e.errorResponse().code())) {
+                throw new MinioPreconditionFailedException("File was changed in the meantime, bucket: " + bucketName + ", object: " + objectName, e);
+            }
+            throw new MinioServiceException("Error updating file in bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error updating file in bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    private ObjectWriteResponse uploadConditionalMultipart(String bucketName, String objectName, InputStream inputStream, String contentType,
+                                                           Map<String, String> objectHeaders, Map<String, String> conditions)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        String uploadId = minioMultipartClient.createUpload(bucketName, objectName, contentType, objectHeaders);
+        try {
+            List<Part> parts = new ArrayList<>();
+            byte[] data;
+            do {
+                data = inputStream.readNBytes((int) uploadPartSize);
+                if (data.length > 0 || parts.isEmpty()) {
+                    int partNumber = parts.size() + 1;
+                    parts.add(new Part(partNumber, minioMultipartClient.uploadPart(bucketName, objectName, uploadId, partNumber, data)));
+                }
+            } while (data.length == uploadPartSize);
+
+            Multimap<String, String> headers = HashMultimap.create();
+            conditions.forEach(headers::put);
+            return minioMultipartClient.completeUpload(bucketName, objectName, uploadId, parts.toArray(new Part[0]), headers);
+        } catch (IOException | InvalidKeyException | NoSuchAlgorithmException | MinioException | RuntimeException e) {
+            minioMultipartClient.abortUpload(bucketName, objectName, uploadId);
+            throw e;
+        }
+    }
+
+    @Override
+    public StorageInputStream downloadFile(String bucketName, String objectName, String matchETag, Long offset, Long length) {
+        try {
+            GetObjectResponse response = minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(storageLayout.getBucket(bucketName))
+                    .object(storageLayout.getObject(bucketName, objectName))
+                    .matchETag(matchETag)
+                    .offset(offset)
+                    .length(length)
+                    .build());
+            return new StorageInputStream(response, getUserMetadata(response.headers()));
+        } catch (ErrorResponseException e) {
+            throw new FileNotFoundException("File not found in bucket: " + bucketName + ", object: " + objectName, e);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error downloading file from bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    @Override
+    public StorageTransfer openTransfer(String bucketName, String objectName, String matchETag, long offset, long length) {
+        InputStream inputStream = downloadFile(bucketName, objectName, matchETag, offset, length);
+        return new StorageTransfer() {
+            @Override
+            public long transferTo(OutputStream outputStream) throws IOException {
+                return MinioHelper.copy(inputStream, outputStream);
+            }
+
+            @Override
+            public void close() throws IOException {
+                inputStream.close();
+            }
+        };
+    }
+
+    @Override
+    public void deleteFile(String bucketName, String objectName) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(storageLayout.getBucket(bucketName))
+                    .object(storageLayout.getObject(bucketName, objectName))
+                    .build());
+        } catch (Exception e) {
+            throw new MinioServiceException("Error deleting file from bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    // Multi-object deletes of up to 1000 keys each instead of one request per object
+    @Override
+    public List<String> deleteFiles(String bucketName, List<String> objectNames) {
+        List<String> failed = new ArrayList<>();
+        for (int start = 0; start < objectNames.size(); start += DELETE_BATCH_SIZE) {
+            List<DeleteObject> batch = objectNames.subList(start, Math.min(start + DELETE_BATCH_SIZE, objectNames.size())).stream()
+                    .map(objectName -> new DeleteObject(storageLayout.getObject(bucketName, objectName)))
+                    .toList();
+            RemoveObjectsArgs args = RemoveObjectsArgs.builder().bucket(storageLayout.getBucket(bucketName)).objects(batch).build();
+            // the deletes are only sent while the results are iterated
+            for (Result<DeleteError> result : minioClient.removeObjects(args)) {
+                try {
+                    DeleteError error = result.get();
+                    logger.error("Error deleting object {} from bucket {}: {}", error.objectName(), bucketName, error.message());
+                    failed.add(storageLayout.getFileName(bucketName, error.objectName()));
+                } catch (Exception e) {
+                    throw new MinioServiceException("Error deleting objects from bucket: " + bucketName, e);
+                }
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public void copyFile(String sourceBucketName, String sourceObjectName, String destinationBucketName, String destinationObjectName) {
+        try {
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .source(CopySource.builder()
+                            .bucket(storageLayout.getBucket(sourceBucketName))
+                            .object(storageLayout.getObject(sourceBucketName, sourceObjectName))
+                            .build())
+                    .bucket(storageLayout.getBucket(destinationBucketName))
+                    .object(storageLayout.getObject(destinationBucketName, destinationObjectName))
+                    .build());
+        } catch (Exception e) {
+            throw new MinioServiceException("Error copying file from bucket: " + sourceBucketName + ", object: " + sourceObjectName
+                    + " to bucket: " + destinationBucketName + ", object: " + destinationObjectName, e);
+        }
+    }
+
+    // Presigned URLs let clients transfer directly against MinIO, the backend only signs the request
+    @Override
+    public String getPresignedDownloadUrl(String bucketName, String objectName, int expirySeconds, String fileName) {
+        try {
+            return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(storageLayout.getBucket(bucketName))
+                    .object(storageLayout.getObject(bucketName, objectName))
+                    .expiry(expirySeconds)
+                    .extraQueryParams(Map.of("response-content-disposition", "attachment; filename=\"" + fileName + "\""))
+                    .build());
+        } catch (Exception e) {
+            throw new MinioServiceException("Error creating download url for bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    @Override
+    public String getPresignedUploadUrl(String bucketName, String objectName, int expirySeconds) {
+        try {
+            return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.PUT)
+                    .bucket(storageLayout.getBucket(bucketName))
+                    .object(storageLayout.getObject(bucketName, objectName))
+                    .expiry(expirySeconds)
+                    .build());
+        } catch (Exception e) {
+            throw new MinioServiceException("Error creating upload url for bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    // MinIO returns user metadata with or without the x-amz-meta- prefix and in any case
+    private static Map<String, String> getUserMetadata(Map<String, String> metadata) {
+        Map<String, String> userMetadata = new HashMap<>();
+        if (metadata != null) {
+            metadata.forEach((key, value) -> {
+                String name = key.toLowerCase(Locale.ROOT);
+                userMetadata.put(name.startsWith(META_PREFIX) ? name.substring(META_PREFIX.length()) : name, value);
+            });
+        }
+        return userMetadata;
+    }
+
+    private static Map<String, String> getUserMetadata(Headers headers) {
+        Map<String, String> userMetadata = new HashMap<>();
+        for (String name : headers.names()) {
+            if (name.toLowerCase(Locale.ROOT).startsWith(META_PREFIX)) {
+                userMetadata.put(name.substring(META_PREFIX.length()).toLowerCase(Locale.ROOT), headers.get(name));
+            }
+        }
+        return userMetadata;
+    }
+}
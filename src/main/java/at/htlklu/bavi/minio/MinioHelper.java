@@ -1,9 +1,42 @@
 package at.htlklu.bavi.minio;
 
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
 public class MinioHelper {
 
+    // Fixed copy buffer, so a download never holds more than this per request in memory
+    public static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     public static String prepareMinioBucketName(String bucketName) {
         bucketName = bucketName.toLowerCase();
         return bucketName;
     }
+
+    public static long copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+            total += read;
+        }
+        outputStream.flush();
+        return total;
+    }
+
+    // Copies length bytes from position of the file, fewer if the file ends before. A servlet output stream is no
+    // channel FileChannel.transferTo could send to directly, the zero-copy path is sendfile (see MinioController).
+    public static long copy(FileChannel channel, long position, long length, OutputStream outputStream) throws IOException {
+        if (position >= channel.size()) {
+            return 0;
+        }
+        channel.position(position);
+        return copy(ByteStreams.limit(Channels.newInputStream(channel), length), outputStream);
+    }
 }
@@ -0,0 +1,80 @@
+package at.htlklu.bavi.minio;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Long running storage operation executed in the background, its state can be polled by the client
+public class MinioJob {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String jobId;
+    private final String description;
+    private volatile Status status = Status.PENDING;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final Instant createdAt = Instant.now();
+    private volatile Instant finishedAt;
+    private volatile String message;
+
+    public MinioJob(String jobId, String description) {
+        this.jobId = jobId;
+        this.description = description;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+        if (status == Status.COMPLETED || status == Status.FAILED) {
+            this.finishedAt = Instant.now();
+        }
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public void addTotal(long count) {
+        total.addAndGet(count);
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public void addProcessed(long count) {
+        processed.addAndGet(count);
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,97 @@
+package at.htlklu.bavi.minio;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+@Service
+public class MinioJobService {
+
+    private static final Logger logger = LogManager.getLogger(MinioJobService.class);
+
+    // finished jobs are kept this long so clients can still poll their result
+    @Value("${minio.jobs.retention:PT24H}")
+    private Duration retention;
+
+    private final Map<String, MinioJob> jobs = new ConcurrentHashMap<>();
+    // move jobs by song id, until they are finished
+    private final Map<Integer, MinioJob> pendingMoves = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    // archive number changes get their own threads, so they never wait behind a scrub or migration that runs for hours
+    private final ExecutorService moveExecutor;
+
+    public MinioJobService(@Value("${minio.jobs.threads:2}") int threads, @Value("${minio.jobs.moveThreads:2}") int moveThreads) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.moveExecutor = Executors.newFixedThreadPool(moveThreads);
+    }
+
+    public MinioJob submit(String description, Consumer<MinioJob> task) {
+        MinioJob job = new MinioJob(UUID.randomUUID().toString(), description);
+        jobs.put(job.getJobId(), job);
+        executor.execute(() -> run(job, task));
+        return job;
+    }
+
+    // Moves the files of a song in the background. Returns null if a move of this song is still pending.
+    public MinioJob submitMove(Integer songId, String description, Consumer<MinioJob> task) {
+        MinioJob job = new MinioJob(UUID.randomUUID().toString(), description);
+        if (pendingMoves.putIfAbsent(songId, job) != null) {
+            return null;
+        }
+        jobs.put(job.getJobId(), job);
+        moveExecutor.execute(() -> {
+            try {
+                run(job, task);
+            } finally {
+                pendingMoves.remove(songId, job);
+            }
+        });
+        return job;
+    }
+
+    public boolean isMovePending(Integer songId) {
+        return pendingMoves.containsKey(songId);
+    }
+
+    private void run(MinioJob job, Consumer<MinioJob> task) {
+        job.setStatus(MinioJob.Status.RUNNING);
+        logger.info("Job {} started: {}", job.getJobId(), job.getDescription());
+        try {
+            task.accept(job);
+            job.setStatus(MinioJob.Status.COMPLETED);
+            logger.info("Job {} completed: {}", job.getJobId(), job.getDescription());
+        } catch (Exception e) {
+            job.setMessage(e.getMessage());
+            job.setStatus(MinioJob.Status.FAILED);
+            logger.error("Job {} failed: {}", job.getJobId(), job.getDescription(), e);
+        }
+    }
+
+    public MinioJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    @Scheduled(fixedDelayString = "${minio.jobs.cleanupInterval:PT1H}")
+    public void removeFinishedJobs() {
+        Instant finishedBefore = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(finishedBefore));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        moveExecutor.shutdown();
+    }
+}
@@ -0,0 +1,274 @@
+package at.htlklu.bavi.minio;
+
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.repository.SongsRepository;
+import io.minio.BucketExistsArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Copies the files of all songs from their own buckets into the shared bucket of the prefix layout while the
+// application keeps running on the bucket layout. Songs are migrated in the order of their bucket name; after each
+// song the name is saved as checkpoint in the shared bucket, so an interrupted migration resumes after it.
+// A song is synced by comparing both listings, which makes every step safe to repeat: missing or changed files are
+// copied and files deleted in the meantime are removed. Songs changed since they were migrated are tracked from the
+// file events and synced again by the next run, so a last run right before switching minio.layout.type to prefix
+// only has to catch up these changes. The tracking does not survive a restart, a run after a restart should be a
+// full one.
+@Service
+public class MinioLayoutMigrationService {
+
+    private static final Logger logger = LogManager.getLogger(MinioLayoutMigrationService.class);
+    private static final String CHECKPOINT = ".migration/checkpoint";
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+    private static final String NO_SUCH_BUCKET = "NoSuchBucket";
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private MinioJobService minioJobService;
+
+    @Autowired
+    private SongsRepository songsRepository;
+
+    @Value("${minio.layout.bucket:songs}")
+    private String targetBucket;
+
+    // number of parallel server-side copies
+    @Value("${minio.layout.migrationThreads:8}")
+    private int migrationThreads;
+
+    private BucketStorageLayout sourceLayout;
+    private PrefixStorageLayout targetLayout;
+    private ExecutorService copyExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    // songs changed since the first run started, they are synced again regardless of the checkpoint
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean tracking;
+
+    @PostConstruct
+    public void init() {
+        sourceLayout = new BucketStorageLayout(minioClient);
+        targetLayout = new PrefixStorageLayout(minioClient, targetBucket);
+        copyExecutor = Executors.newFixedThreadPool(migrationThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        copyExecutor.shutdown();
+    }
+
+    // full ignores the checkpoint and compares all songs again
+    public MinioJob start(boolean full) {
+        if (!fileStorage.isMinio()) {
+            throw new IllegalStateException("The layout migration is only available with the MinIO storage");
+        }
+        if (!(storageLayout instanceof BucketStorageLayout)) {
+            throw new IllegalStateException("The prefix layout is already in use");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A layout migration is already running");
+        }
+        tracking = true;
+        return minioJobService.submit("Migrate songs to the shared bucket " + targetBucket, job -> {
+            try {
+                migrate(job, full);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @EventListener
+    public void onFileEvent(MinioFileEvent event) {
+        if (tracking) {
+            changed.add(event.getBucketName());
+        }
+    }
+
+    private void migrate(MinioJob job, boolean full) {
+        try {
+            if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(targetBucket).build())) {
+                minioClient.makeBucket(MakeBucketArgs.builder().bucket(targetBucket).build());
+            }
+            String checkpoint = full ? null : readCheckpoint();
+            List<String> bucketNames = songsRepository.findAll().stream()
+                    .map(Song::getArchivNumber)
+                    .filter(Objects::nonNull)
+                    .map(MinioHelper::prepareMinioBucketName)
+                    .distinct()
+                    .sorted()
+                    .toList();
+            job.addTotal(bucketNames.size());
+            logger.info("Migrating {} songs to bucket {}, checkpoint: {}", bucketNames.size(), targetBucket, checkpoint);
+
+            for (String bucketName : bucketNames) {
+                if (checkpoint == null || bucketName.compareTo(checkpoint) > 0 || changed.contains(bucketName)) {
+                    // removed before the sync, so a change during the sync is synced again
+                    changed.remove(bucketName);
+                    syncBucket(bucketName);
+                    writeCheckpoint(bucketName);
+                }
+                job.addProcessed(1);
+            }
+
+            // songs changed (or renamed and deleted) while the migration ran
+            for (String bucketName : List.copyOf(changed)) {
+                changed.remove(bucketName);
+                syncBucket(bucketName);
+            }
+            job.setMessage(changed.isEmpty()
+                    ? "Migration complete, minio.layout.type can be switched to prefix"
+                    : changed.size() + " songs changed during the migration, run it again before switching");
+        } catch (MinioServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MinioServiceException("Error migrating songs to bucket: " + targetBucket, e);
+        }
+    }
+
+    private void syncBucket(String bucketName) throws Exception {
+        if (!sourceLayout.exists(bucketName)) {
+            if (targetLayout.exists(bucketName)) {
+                // the song was deleted or renamed since it was migrated
+                removeObjects(bucketName, listTarget(bucketName).keySet());
+                targetLayout.remove(bucketName);
+                logger.debug("Removed migrated song {}", bucketName);
+            }
+            return;
+        }
+        if (!targetLayout.exists(bucketName)) {
+            targetLayout.create(bucketName);
+        }
+
+        Map<String, Item> migrated = listTarget(bucketName);
+        List<Future<?>> copies = new ArrayList<>();
+        // bounds the number of copies in flight, the listing is not read further ahead than that
+        Semaphore permits = new Semaphore(migrationThreads);
+        try {
+            for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder().bucket(bucketName).recursive(true).build())) {
+                Item item = result.get();
+                Item copy = migrated.remove(item.objectName());
+                if (copy != null && copy.size() == item.size() && !item.lastModified().isAfter(copy.lastModified())) {
+                    continue;
+                }
+
+                permits.acquire();
+                copies.add(copyExecutor.submit(() -> {
+                    try {
+                        minioClient.copyObject(CopyObjectArgs.builder()
+                                .source(CopySource.builder().bucket(bucketName).object(item.objectName()).build())
+                                .bucket(targetBucket)
+                                .object(targetLayout.getObject(bucketName, item.objectName()))
+                                .build());
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<?> copy : copies) {
+                copy.get();
+            }
+        } catch (Exception e) {
+            copies.forEach(copy -> copy.cancel(true));
+            throw e;
+        }
+
+        // files deleted from the song after an earlier run
+        removeObjects(bucketName, migrated.keySet());
+        logger.debug("Migrated song {}: {} files copied, {} removed", bucketName, copies.size(), migrated.size());
+    }
+
+    // Files of the song in the shared bucket by file name
+    private Map<String, Item> listTarget(String bucketName) throws Exception {
+        Map<String, Item> items = new HashMap<>();
+        ListObjectsArgs args = ListObjectsArgs.builder()
+                .bucket(targetBucket)
+                .prefix(targetLayout.getPrefix(bucketName))
+                .recursive(true)
+                .build();
+        for (Result<Item> result : minioClient.listObjects(args)) {
+            Item item = result.get();
+            items.put(targetLayout.getFileName(bucketName, item.objectName()), item);
+        }
+        return items;
+    }
+
+    private void removeObjects(String bucketName, Set<String> fileNames) throws Exception {
+        if (fileNames.isEmpty()) {
+            return;
+        }
+        List<DeleteObject> objects = fileNames.stream()
+                .map(fileName -> new DeleteObject(targetLayout.getObject(bucketName, fileName)))
+                .toList();
+        // the deletes are only sent while the results are iterated
+        for (Result<DeleteError> result : minioClient.removeObjects(RemoveObjectsArgs.builder().bucket(targetBucket).objects(objects).build())) {
+            DeleteError error = result.get();
+            throw new MinioServiceException("Error deleting object " + error.objectName() + " from bucket " + targetBucket + ": " + error.message());
+        }
+    }
+
+    private String readCheckpoint() throws Exception {
+        try (InputStream inputStream = minioClient.getObject(GetObjectArgs.builder().bucket(targetBucket).object(CHECKPOINT).build())) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if (NO_SUCH_KEY.equals(code) || NO_SUCH_BUCKET.equals(code)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private void writeCheckpoint(String bucketName) throws Exception {
+        byte[] data = bucketName.getBytes(StandardCharsets.UTF_8);
+        minioClient.putObject(PutObjectArgs.builder()
+                .bucket(targetBucket)
+                .object(CHECKPOINT)
+                .stream(new ByteArrayInputStream(data), data.length, -1)
+                .build());
+    }
+}
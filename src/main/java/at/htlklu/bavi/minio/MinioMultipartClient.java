@@ -0,0 +1,99 @@
+package at.htlklu.bavi.minio;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.errors.MinioException;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// Exposes the low level S3 multipart calls of the MinIO SDK, which are only accessible to subclasses.
+// The calls wait for the async variants, the blocking ones are deprecated.
+public class MinioMultipartClient extends MinioAsyncClient {
+
+    public MinioMultipartClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createUpload(String bucketName, String objectName, String contentType)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        return createUpload(bucketName, objectName, contentType, Map.of());
+    }
+
+    // extraHeaders (user metadata, Content-Encoding) are stored with the object once the upload is completed
+    public String createUpload(String bucketName, String objectName, String contentType, Map<String, String> extraHeaders)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        extraHeaders.forEach(headers::put);
+        return await(createMultipartUploadAsync(bucketName, null, objectName, headers, null)).result().uploadId();
+    }
+
+    public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber, byte[] data)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        return await(uploadPartAsync(bucketName, null, objectName, data, data.length, uploadId, partNumber, null, null)).etag();
+    }
+
+    public ObjectWriteResponse completeUpload(String bucketName, String objectName, String uploadId, Part[] parts)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        return completeUpload(bucketName, objectName, uploadId, parts, null);
+    }
+
+    // Conditional headers (If-Match/If-None-Match) of a multipart upload are evaluated by the server on completion
+    public ObjectWriteResponse completeUpload(String bucketName, String objectName, String uploadId, Part[] parts, Multimap<String, String> headers)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        return await(completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, headers, null));
+    }
+
+    public void abortUpload(String bucketName, String objectName, String uploadId)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        await(abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null));
+    }
+
+    // One page of at most 1000 parts, continue with nextPartNumberMarker while the result is truncated
+    public ListPartsResult listParts(String bucketName, String objectName, String uploadId, int partNumberMarker)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        return await(listPartsAsync(bucketName, null, objectName, null, partNumberMarker, uploadId, null, null)).result();
+    }
+
+    // One page of the unfinished uploads of a bucket, continue with the next markers while the result is truncated
+    public ListMultipartUploadsResult listUploads(String bucketName, String keyMarker, String uploadIdMarker)
+            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+        return await(listMultipartUploadsAsync(bucketName, null, null, null, null, null, keyMarker, uploadIdMarker, null, null)).result();
+    }
+
+    // Rethrows the failure of the call as the exception the blocking call would have thrown
+    private static <T> T await(CompletableFuture<T> future) throws IOException, MinioException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for MinIO");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MinioException minioException) {
+                throw minioException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
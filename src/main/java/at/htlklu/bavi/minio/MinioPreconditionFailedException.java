@@ -0,0 +1,12 @@
+package at.htlklu.bavi.minio;
+
+public class MinioPreconditionFailedException extends MinioServiceException {
+
+    public MinioPreconditionFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MinioPreconditionFailedException(String message) {
+        super(message);
+    }
+}
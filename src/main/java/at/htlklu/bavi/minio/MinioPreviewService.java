@@ -0,0 +1,304 @@
+package at.htlklu.bavi.minio;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Renders a PNG preview of the first page of PDFs (and of images) plus a small thumbnail in the background.
+// The renditions are stored in the previews bucket under <bucket>/<file>/<ETag>/, so a changed file never
+// shows an old preview. Uploads only queue the work; when the queue is full, the preview is rendered on
+// its first request instead. Versions that cannot be rendered (broken or unreadable files) are remembered for
+// minio.preview.failedRetention, so their requests get no preview instead of waiting for one that never comes.
+@Service
+public class MinioPreviewService {
+
+    private static final Logger logger = LogManager.getLogger(MinioPreviewService.class);
+    private static final String PREVIEW = "preview";
+    private static final String THUMBNAIL = "thumbnail";
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Value("${minio.preview.enabled:true}")
+    private boolean enabled;
+
+    @Value("${minio.preview.bucket:previews}")
+    private String previewBucket;
+
+    @Value("${minio.preview.width:800}")
+    private int previewWidth;
+
+    @Value("${minio.preview.thumbnailWidth:200}")
+    private int thumbnailWidth;
+
+    // the source is loaded into memory for rendering, larger files get no preview
+    @Value("${minio.preview.maxSourceBytes:52428800}")
+    private long maxSourceBytes;
+
+    @Value("${minio.preview.threads:2}")
+    private int threads;
+
+    @Value("${minio.preview.queueSize:100}")
+    private int queueSize;
+
+    // a failure may have been caused by the storage, so the version is tried again after this time
+    @Value("${minio.preview.failedRetention:PT1H}")
+    private Duration failedRetention;
+
+    private ThreadPoolExecutor previewExecutor;
+    // versions (bucket/file/ETag) whose rendering failed
+    private Cache<String, Boolean> failed;
+
+    // versions (bucket/file/ETag) that are queued or being rendered
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        previewExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize));
+        failed = Caffeine.newBuilder()
+                .expireAfterWrite(failedRetention)
+                .maximumSize(10_000)
+                .build();
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!fileStorage.bucketExists(previewBucket)) {
+                fileStorage.createBucket(previewBucket);
+                logger.info("Created preview bucket: {}", previewBucket);
+            }
+        } catch (MinioServiceException e) {
+            // the storage may not be up yet, storing the first preview fails instead of the application start
+            logger.error("Error creating preview bucket: {}", previewBucket, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        previewExecutor.shutdown();
+    }
+
+    public boolean isSupported(String objectName, String contentType) {
+        return enabled && (isPdf(objectName, contentType) || isImage(objectName, contentType));
+    }
+
+    // Whether this version of the file gets a preview: its type is supported, it is not too large and
+    // rendering it did not fail
+    public boolean isAvailable(String bucketName, String objectName, StoredFile stat) {
+        return isSupported(objectName, stat.getContentType()) && stat.getSize() <= maxSourceBytes
+                && failed.getIfPresent(key(bucketName, objectName, stat.getETag(), "")) == null;
+    }
+
+    @EventListener
+    public void onFileEvent(MinioFileEvent event) {
+        // previews of a moved bucket are rendered again on request
+        if (!enabled || (event.getType() == MinioFileEvent.Type.STORED && event.getObjectName() == null)) {
+            return;
+        }
+        String prefix = prefix(event.getBucketName(), event.getObjectName());
+        if (event.getType() == MinioFileEvent.Type.STORED) {
+            execute(() -> {
+                StoredFile stat;
+                try {
+                    stat = minioService.statFile(event.getBucketName(), event.getObjectName());
+                } catch (MinioServiceException e) {
+                    logger.error("Error rendering preview of bucket: {}, object: {}", event.getBucketName(), event.getObjectName(), e);
+                    return;
+                }
+                // previews of the replaced version are not needed anymore
+                removePreviews(prefix);
+                String version = key(event.getBucketName(), event.getObjectName(), stat.getETag(), "");
+                if (pending.add(version)) {
+                    renderPending(version, event.getBucketName(), event.getObjectName(), stat);
+                }
+            });
+        } else {
+            execute(() -> removePreviews(prefix));
+        }
+    }
+
+    // Opens the stored preview or thumbnail of this version of the file. Returns null if it does not exist yet,
+    // its rendering is queued then. Check isAvailable first, a version that cannot be rendered stays null.
+    public InputStream openPreview(String bucketName, String objectName, StoredFile stat, boolean thumbnail) {
+        String key = key(bucketName, objectName, stat.getETag(), thumbnail ? THUMBNAIL : PREVIEW);
+        try {
+            return fileStorage.downloadFile(previewBucket, key, null, null, null);
+        } catch (FileNotFoundException e) {
+            logger.debug("Preview {} not rendered yet", key);
+        }
+
+        // clients polling for the preview do not queue the same version again
+        String version = key(bucketName, objectName, stat.getETag(), "");
+        if (pending.add(version) && !execute(() -> renderPending(version, bucketName, objectName, stat))) {
+            pending.remove(version);
+        }
+        return null;
+    }
+
+    // Runs the task on the preview executor, false if the queue is full
+    private boolean execute(Runnable task) {
+        try {
+            previewExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn("Preview queue full, preview is rendered on request");
+            return false;
+        }
+    }
+
+    // Renders the version that was added to pending by the caller and removes it again
+    private void renderPending(String version, String bucketName, String objectName, StoredFile stat) {
+        try {
+            render(bucketName, objectName, stat);
+        } catch (Exception e) {
+            logger.error("Error rendering preview of bucket: {}, object: {}", bucketName, objectName, e);
+        } finally {
+            pending.remove(version);
+        }
+    }
+
+    private void render(String bucketName, String objectName, StoredFile stat) throws IOException {
+        if (!isAvailable(bucketName, objectName, stat) || isRendered(bucketName, objectName, stat)) {
+            return;
+        }
+        String version = key(bucketName, objectName, stat.getETag(), "");
+        try {
+            BufferedImage image;
+            // the rendition is stored under this ETag, so exactly this version is read
+            try (InputStream inputStream = minioService.downloadVersion(bucketName, objectName, stat.getETag())) {
+                image = isPdf(objectName, stat.getContentType()) ? renderFirstPage(inputStream) : ImageIO.read(inputStream);
+            }
+            if (image == null) {
+                logger.warn("No preview possible for bucket: {}, object: {}", bucketName, objectName);
+                failed.put(version, true);
+                return;
+            }
+
+            BufferedImage preview = scale(image, previewWidth);
+            store(key(bucketName, objectName, stat.getETag(), PREVIEW), preview);
+            store(key(bucketName, objectName, stat.getETag(), THUMBNAIL), scale(preview, thumbnailWidth));
+            logger.debug("Rendered preview of bucket: {}, object: {}", bucketName, objectName);
+        } catch (FileNotFoundException e) {
+            // replaced or deleted in the meantime, the new version is rendered on its own
+            logger.debug("Skipped preview of replaced file in bucket: {}, object: {}", bucketName, objectName);
+        } catch (IOException | RuntimeException e) {
+            failed.put(version, true);
+            throw e;
+        }
+    }
+
+    // the thumbnail is stored last, so both renditions exist if it does
+    private boolean isRendered(String bucketName, String objectName, StoredFile stat) {
+        try {
+            fileStorage.statFile(previewBucket, key(bucketName, objectName, stat.getETag(), THUMBNAIL));
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    private BufferedImage renderFirstPage(InputStream inputStream) throws IOException {
+        try (PDDocument document = Loader.loadPDF(new RandomAccessReadBuffer(inputStream))) {
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
+            // render at the preview width directly instead of scaling down a full-resolution page
+            float scale = previewWidth / document.getPage(0).getMediaBox().getWidth();
+            return new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width) {
+        if (image.getWidth() <= width) {
+            return image;
+        }
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private void store(String key, BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        fileStorage.uploadFile(previewBucket, key, new ByteArrayInputStream(outputStream.toByteArray()), outputStream.size(),
+                "image/png", Map.of(), null, null);
+    }
+
+    private void removePreviews(String prefix) {
+        try {
+            List<String> objectNames = new ArrayList<>();
+            Iterator<StoredFile> files = fileStorage.listFiles(previewBucket, prefix, null, MinioService.MAX_LIST_KEYS);
+            files.forEachRemaining(file -> objectNames.add(file.getName()));
+            if (objectNames.isEmpty()) {
+                return;
+            }
+            for (String failed : fileStorage.deleteFiles(previewBucket, objectNames)) {
+                logger.warn("Error removing preview {}", failed);
+            }
+            logger.debug("Removed {} previews under {}", objectNames.size(), prefix);
+        } catch (MinioServiceException e) {
+            logger.error("Error removing previews under {}", prefix, e);
+        }
+    }
+
+    private static String prefix(String bucketName, String objectName) {
+        String prefix = MinioHelper.prepareMinioBucketName(bucketName) + "/";
+        return objectName != null ? prefix + objectName + "/" : prefix;
+    }
+
+    private static String key(String bucketName, String objectName, String eTag, String rendition) {
+        return prefix(bucketName, objectName) + eTag + "/" + (rendition.isEmpty() ? "" : rendition + ".png");
+    }
+
+    private static boolean isPdf(String objectName, String contentType) {
+        return "application/pdf".equalsIgnoreCase(contentType) || objectName.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    private static boolean isImage(String objectName, String contentType) {
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+            return true;
+        }
+        String name = objectName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".gif") || name.endsWith(".bmp");
+    }
+}
@@ -0,0 +1,225 @@
+package at.htlklu.bavi.minio;
+
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.repository.SongsRepository;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Reads every stored song file and compares it with the checksum recorded at upload, and compares the stored
+// buckets with the songs in the database. The songs are checked in parallel, the bytes read per second are
+// limited so the check does not compete with downloads. Results are logged, summarized in the job message and
+// published as minio.scrub.* metrics.
+@Service
+public class MinioScrubService {
+
+    private static final Logger logger = LogManager.getLogger(MinioScrubService.class);
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private MinioJobService minioJobService;
+
+    @Autowired
+    private SongsRepository songsRepository;
+
+    @Value("${minio.scrub.threads:4}")
+    private int threads;
+
+    @Value("${minio.scrub.bytesPerSecond:52428800}")
+    private long bytesPerSecond;
+
+    // buckets that do not belong to a song
+    @Value("${minio.preview.bucket:previews}")
+    private String previewBucket;
+
+    @Value("${minio.dedup.bucket:blobs}")
+    private String blobBucket;
+
+    @Value("${minio.layout.bucket:songs}")
+    private String layoutBucket;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong orphanedBuckets = new AtomicLong();
+    private final AtomicLong missingBuckets = new AtomicLong();
+    private final Counter verifiedFiles;
+    private final Counter corruptFiles;
+    private final Counter unreadableFiles;
+    private final Counter uncheckedFiles;
+    private final Counter bytesRead;
+
+    private ExecutorService scrubExecutor;
+    private RateLimiter rateLimiter;
+
+    public MinioScrubService(MeterRegistry meterRegistry) {
+        verifiedFiles = Counter.builder("minio.scrub.files").tag("result", "verified").register(meterRegistry);
+        corruptFiles = Counter.builder("minio.scrub.files").tag("result", "corrupt").register(meterRegistry);
+        unreadableFiles = Counter.builder("minio.scrub.files").tag("result", "unreadable").register(meterRegistry);
+        // stored before checksums were recorded, only checked for being readable
+        uncheckedFiles = Counter.builder("minio.scrub.files").tag("result", "unchecked").register(meterRegistry);
+        bytesRead = Counter.builder("minio.scrub.bytes").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("minio.scrub.running", running, value -> value.get() ? 1 : 0).register(meterRegistry);
+        Gauge.builder("minio.scrub.progress", this, scrub -> {
+            long files = scrub.total.get();
+            return files == 0 ? 0 : (double) scrub.processed.get() / files;
+        }).register(meterRegistry);
+        Gauge.builder("minio.scrub.buckets.orphaned", orphanedBuckets, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("minio.scrub.buckets.missing", missingBuckets, AtomicLong::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        scrubExecutor = Executors.newFixedThreadPool(threads);
+        rateLimiter = RateLimiter.create(bytesPerSecond);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scrubExecutor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${minio.scrub.cron:0 0 3 * * SUN}")
+    public void scheduledScrub() {
+        try {
+            start();
+        } catch (IllegalStateException e) {
+            logger.warn("Scheduled integrity check skipped: {}", e.getMessage());
+        }
+    }
+
+    public MinioJob start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An integrity check is already running");
+        }
+        return minioJobService.submit("Check stored files", job -> {
+            try {
+                scrub(job);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void scrub(MinioJob job) {
+        total.set(0);
+        processed.set(0);
+        Set<String> songBuckets = songsRepository.findAll().stream()
+                .map(Song::getArchivNumber)
+                .filter(Objects::nonNull)
+                .map(MinioHelper::prepareMinioBucketName)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<String> storedBuckets = new TreeSet<>(fileStorage.listBuckets());
+        storedBuckets.removeAll(Set.of(previewBucket, blobBucket, layoutBucket));
+
+        Set<String> orphaned = new TreeSet<>(storedBuckets);
+        orphaned.removeAll(songBuckets);
+        Set<String> missing = new TreeSet<>(songBuckets);
+        missing.removeAll(storedBuckets);
+        orphanedBuckets.set(orphaned.size());
+        missingBuckets.set(missing.size());
+        orphaned.forEach(bucketName -> logger.warn("Bucket without song: {}", bucketName));
+        missing.forEach(bucketName -> logger.warn("Song without bucket: {}", bucketName));
+
+        Set<String> bucketNames = new TreeSet<>(storedBuckets);
+        bucketNames.retainAll(songBuckets);
+        logger.info("Checking files of {} songs", bucketNames.size());
+
+        List<String> corrupt = new ArrayList<>();
+        List<Future<List<String>>> checks = new ArrayList<>();
+        for (String bucketName : bucketNames) {
+            checks.add(scrubExecutor.submit(() -> scrubBucket(bucketName, job)));
+        }
+        try {
+            for (Future<List<String>> check : checks) {
+                corrupt.addAll(check.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            checks.forEach(check -> check.cancel(true));
+            throw new MinioServiceException("Integrity check interrupted", e);
+        } catch (Exception e) {
+            checks.forEach(check -> check.cancel(true));
+            throw new MinioServiceException("Error checking stored files", e);
+        }
+
+        String result = String.format("%d files checked, %d corrupt or unreadable, %d buckets without song, %d songs without bucket",
+                job.getProcessed(), corrupt.size(), orphaned.size(), missing.size());
+        logger.info("Integrity check finished: {}", result);
+        job.setMessage(corrupt.isEmpty() ? result : result + ": " + String.join(", ", corrupt));
+    }
+
+    // Returns the corrupt or unreadable files as <bucket>/<file>
+    private List<String> scrubBucket(String bucketName, MinioJob job) {
+        List<String> corrupt = new ArrayList<>();
+        List<String> fileNames = minioService.listFiles(bucketName);
+        job.addTotal(fileNames.size());
+        total.addAndGet(fileNames.size());
+        for (String fileName : fileNames) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            try {
+                scrubFile(bucketName, fileName);
+            } catch (FileNotFoundException e) {
+                // deleted since the listing
+                logger.debug("File {} in bucket {} removed during the check", fileName, bucketName);
+            } catch (MinioChecksumException e) {
+                corruptFiles.increment();
+                corrupt.add(bucketName + "/" + fileName);
+                logger.error("Corrupt file: {}", e.getMessage());
+            } catch (IOException | MinioServiceException e) {
+                unreadableFiles.increment();
+                corrupt.add(bucketName + "/" + fileName);
+                logger.error("Unreadable file {} in bucket {}", fileName, bucketName, e);
+            }
+            job.addProcessed(1);
+            processed.incrementAndGet();
+        }
+        return corrupt;
+    }
+
+    private void scrubFile(String bucketName, String fileName) throws IOException {
+        try (StorageInputStream storedStream = minioService.openStoredFile(bucketName, fileName)) {
+            String checksum = MinioChecksum.getChecksum(storedStream.getUserMetadata());
+            InputStream inputStream = checksum != null
+                    ? new ChecksumInputStream(storedStream, checksum, "bucket: " + bucketName + ", object: " + fileName)
+                    : storedStream;
+            byte[] buffer = new byte[MinioHelper.STREAM_BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                rateLimiter.acquire(read);
+                bytesRead.increment(read);
+            }
+            (checksum != null ? verifiedFiles : uncheckedFiles).increment();
+        }
+    }
+}
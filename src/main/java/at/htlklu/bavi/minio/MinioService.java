@@ -1,191 +1,721 @@
 package at.htlklu.bavi.minio;
 
 import at.htlklu.bavi.controller.SongController;
-import io.minio.*;
-import io.minio.errors.*;
-import io.minio.messages.Item;
-import org.apache.commons.compress.utils.IOUtils;
+import at.htlklu.bavi.model.SongFile;
+import at.htlklu.bavi.payload.response.FileInfoResponse;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 //@CrossOrigin("http://localhost:4200")
 @CrossOrigin(origins = "*", maxAge = 3600)
 @Service
 public class MinioService {
 
+    // all files of songs are stored through this, except the blobs of deduplicated files
     @Autowired
-    private MinioClient minioClient;
+    private FileStorage fileStorage;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    // blobs of deduplicated files and objects addressed as they are stored (see MinioConfig.blobStorage)
+    @Autowired
+    @Qualifier("blobStorage")
+    private FileStorage blobStorage;
+
+    @Autowired
+    private MinioCache minioCache;
+
+    @Autowired
+    private MinioDiskCache minioDiskCache;
+
+    @Autowired
+    private MinioDedupService minioDedupService;
+
+    // listeners (e.g. the preview generation) are informed about stored and removed files
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // number of parallel server-side copies when the files of a song are moved
+    @Value("${minio.copy.threads:8}")
+    private int copyThreads;
+
+    // compares complete downloads with the checksum recorded at upload while they are streamed
+    @Value("${minio.checksum.verifyDownloads:false}")
+    private boolean verifyDownloads;
+
+    // buckets of the storage itself, no song may use their names as archive number
+    @Value("${minio.dedup.bucket:blobs}")
+    private String blobBucket;
+
+    @Value("${minio.preview.bucket:previews}")
+    private String previewBucket;
+
+    @Value("${minio.layout.bucket:songs}")
+    private String layoutBucket;
+
+    private ExecutorService copyExecutor;
 
     private static final Logger logger = LogManager.getLogger(MinioService.class);
     private static final String CLASS_NAME = "MinioService";
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final String TEMP_PREFIX = "tmp/";
+    // S3 returns at most 1000 keys per listing request
+    public static final int MAX_LIST_KEYS = 1000;
+
+    @PostConstruct
+    public void init() {
+        copyExecutor = Executors.newFixedThreadPool(copyThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        copyExecutor.shutdown();
+    }
+
+    // With deduplication the files of a song are stored as blobs, the objects in the song bucket are only resolved
+    // through the SongFile manifest (see MinioDedupService)
+    public boolean isDeduplicated() {
+        return minioDedupService.isEnabled();
+    }
 
     public List<String> listFiles(String bucketName) {
-        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        return minioCache.listFiles(bucketName, this::loadFiles);
+    }
 
+    private List<String> loadFiles(String bucketName) {
+        if (minioDedupService.isEnabled()) {
+            return List.copyOf(minioDedupService.listFileNames(bucketName));
+        }
         List<String> objectNames = new ArrayList<>();
-        try {
-            Iterable<Result<Item>> results = minioClient.listObjects(ListObjectsArgs.builder().bucket(bucketName).build());
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                objectNames.add(item.objectName());
+        fileStorage.listFiles(bucketName, null, null, MAX_LIST_KEYS).forEachRemaining(file -> objectNames.add(file.getName()));
+        logger.debug("Listed files in bucket: {}", bucketName);
+        // the cached list is shared between requests
+        return List.copyOf(objectNames);
+    }
+
+    // Hands at most limit objects after startAfter to the consumer while the listing is read,
+    // returns the name to continue after or null when there are no more objects
+    public String listFiles(String bucketName, String startAfter, int limit, Consumer<FileInfoResponse> consumer) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            List<SongFile> songFiles = minioDedupService.listFiles(bucketName, startAfter, limit + 1);
+            for (SongFile songFile : songFiles.subList(0, Math.min(limit, songFiles.size()))) {
+                consumer.accept(new FileInfoResponse(songFile.getFileName(), songFile.getSize(), songFile.getHash(),
+                        songFile.getLastModified(), songFile.getContentType()));
             }
-            logger.debug("Listed files in bucket: {}", bucketName);
-        } catch (Exception e) {
-            throw new MinioServiceException("Error listing files in bucket: " + bucketName, e);
+            logger.debug("Listed {} files in bucket: {}", Math.min(limit, songFiles.size()), bucketName);
+            return songFiles.size() > limit ? songFiles.get(limit - 1).getFileName() : null;
+        }
+
+        // one file more than requested tells whether there is a next page without another request
+        Iterator<StoredFile> files = fileStorage.listFiles(bucketName, null, startAfter, limit + 1);
+        int count = 0;
+        String lastName = null;
+        while (files.hasNext()) {
+            if (count == limit) {
+                logger.debug("Listed {} files in bucket: {}", count, bucketName);
+                return lastName;
+            }
+            StoredFile file = files.next();
+            consumer.accept(toFileInfo(file));
+            lastName = file.getName();
+            count++;
+        }
+        logger.debug("Listed {} files in bucket: {}", count, bucketName);
+        return null;
+    }
+
+
+    private static FileInfoResponse toFileInfo(StoredFile file) {
+        // encoded files are listed with their decoded size where it was known at upload
+        long originalSize = MinioCodec.getOriginalSize(file.getUserMetadata());
+        long size = originalSize >= 0 ? originalSize : file.getSize();
+        return new FileInfoResponse(file.getName(), size, file.getETag(), file.getLastModified(), file.getContentType());
+    }
+
+
+    public String uploadFile(String bucketName, String objectName, InputStream inputStream, String contentType) {
+        return uploadFile(bucketName, objectName, inputStream, -1, contentType);
+    }
+
+    // objectSize -1 streams an object of unknown size as a multipart upload, buffering one part at a time
+    public String uploadFile(String bucketName, String objectName, InputStream inputStream, long objectSize, String contentType) {
+        return uploadFile(bucketName, objectName, inputStream, objectSize, contentType, null, null);
+    }
+
+    // A PUT replaces an existing object atomically, readers see either the old or the new file.
+    // ifMatch (ETag) / ifNoneMatch ("*") turn the upload into a conditional write that fails with
+    // MinioPreconditionFailedException instead of overwriting a file that was changed or created in between.
+    // Returns the ETag of the stored object.
+    public String uploadFile(String bucketName, String objectName, InputStream inputStream, long objectSize, String contentType,
+                             String ifMatch, String ifNoneMatch) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            return uploadDeduplicated(bucketName, objectName, inputStream, objectSize, contentType, ifMatch, ifNoneMatch);
+        }
+
+        // Compressible files are deflated while they are streamed, their stored size is only known afterwards
+        CountingInputStream originalStream = new CountingInputStream(inputStream);
+        boolean encoded = MinioCodec.isCompressible(objectName, contentType);
+        Map<String, String> userMetadata = encoded ? MinioCodec.getMetadata(objectSize) : new HashMap<>();
+        MessageDigest digest = MinioChecksum.newDigest();
+
+        try (InputStream storedStream = new DigestInputStream(encoded ? MinioCodec.encode(originalStream) : originalStream, digest)) {
+            logger.info("Uploading file {} to bucket {}", objectName, bucketName);
+            String eTag = fileStorage.uploadFile(bucketName, objectName, storedStream, encoded ? -1 : objectSize, contentType,
+                    userMetadata, ifMatch, ifNoneMatch);
+            if (objectSize >= 0 && originalStream.getCount() != objectSize) {
+                fileStorage.deleteFile(bucketName, objectName);
+                throw new MinioServiceException("Expected " + objectSize + " bytes but received " + originalStream.getCount()
+                        + ", bucket: " + bucketName + ", object: " + objectName);
+            }
+            eTag = addChecksum(bucketName, objectName, eTag, contentType, userMetadata, MinioChecksum.toHex(digest),
+                    encoded ? originalStream.getCount() : -1);
+            minioCache.invalidateListing(bucketName);
+            minioDiskCache.invalidate(bucketName, objectName);
+            eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.STORED, bucketName, objectName));
+            logger.debug("File {} uploaded successfully to bucket {}", objectName, bucketName);
+            return eTag;
+        } catch (IOException e) {
+            throw new MinioServiceException("Error uploading file to bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    // The checksum (and the decoded size of encoded files) is only known once the content was streamed, so it is
+    // added to the metadata of the stored object afterwards, without sending the content again. An object replaced
+    // in the meantime keeps the metadata of the newer upload. Returns the ETag of the updated object.
+    private String addChecksum(String bucketName, String objectName, String eTag, String contentType, Map<String, String> userMetadata,
+                               String checksum, long originalSize) {
+        Map<String, String> updatedMetadata = new HashMap<>(userMetadata);
+        updatedMetadata.putAll(MinioChecksum.getMetadata(checksum));
+        if (originalSize >= 0) {
+            updatedMetadata.putAll(MinioCodec.getMetadata(originalSize));
+        }
+        try {
+            return fileStorage.updateUserMetadata(bucketName, objectName, eTag, contentType, updatedMetadata);
+        } catch (MinioPreconditionFailedException e) {
+            logger.debug("File {} in bucket {} replaced before its checksum was stored", objectName, bucketName);
+            return eTag;
         }
-        return objectNames;
     }
 
+    // The content is streamed into a temporary object while its SHA-256 is computed, then it is stored under the
+    // hash unless that content exists already. Returns the hash, which is the ETag of deduplicated files.
+    private String uploadDeduplicated(String bucketName, String objectName, InputStream inputStream, long objectSize, String contentType,
+                                      String ifMatch, String ifNoneMatch) {
+        String blobBucket = minioDedupService.getBlobBucket();
+        String tempObject = TEMP_PREFIX + UUID.randomUUID();
+        try {
+            logger.info("Uploading file {} to bucket {} (deduplicated)", objectName, bucketName);
+            MessageDigest digest = MinioChecksum.newDigest();
+            CountingInputStream countingInputStream = new CountingInputStream(new DigestInputStream(inputStream, digest));
+            blobStorage.uploadFile(blobBucket, tempObject, countingInputStream, objectSize, contentType, Map.of(), null, null);
+            String hash = MinioChecksum.toHex(digest);
+
+            minioDedupService.commitFile(bucketName, objectName, hash, countingInputStream.getCount(), contentType,
+                    blobBucket, tempObject, ifMatch, ifNoneMatch);
+            minioCache.invalidateListing(bucketName);
+            minioDiskCache.invalidate(bucketName, objectName);
+            eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.STORED, bucketName, objectName));
+            logger.debug("File {} uploaded successfully to bucket {}, hash {}", objectName, bucketName, hash);
+            return hash;
+        } finally {
+            removeQuietly(blobBucket, tempObject);
+        }
+    }
 
-    public void uploadFile(String bucketName, String objectName, InputStream inputStream, String contentType) {
+    // Records the checksum of a file written directly into the storage (resumable uploads), the file is read once.
+    // Returns the ETag of the file.
+    public String recordChecksum(String bucketName, String objectName) {
         bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        StoredFile file = fileStorage.statFile(bucketName, objectName);
+        MessageDigest digest = MinioChecksum.newDigest();
+        try (InputStream inputStream = fileStorage.downloadFile(bucketName, objectName, file.getETag(), null, null)) {
+            MinioHelper.copy(new DigestInputStream(inputStream, digest), OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new MinioServiceException("Error reading file from bucket: " + bucketName + ", object: " + objectName, e);
+        }
+        String eTag = addChecksum(bucketName, objectName, file.getETag(), file.getContentType(), file.getUserMetadata(), MinioChecksum.toHex(digest), -1);
+        logger.debug("Recorded checksum of file {} in bucket {}", objectName, bucketName);
+        return eTag;
+    }
 
-        // Check if the file already exists, if so, delete it first
+    // Completes an upload the client sent straight to the storage with a presigned URL: records its checksum and
+    // publishes it like an upload through the backend. The content stays as it was sent, it is not encoded.
+    public String confirmUpload(String bucketName, String objectName) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        String eTag = recordChecksum(bucketName, objectName);
+        minioCache.invalidateListing(bucketName);
+        minioDiskCache.invalidate(bucketName, objectName);
+        eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.STORED, bucketName, objectName));
+        logger.debug("Confirmed upload of file {} to bucket {}", objectName, bucketName);
+        return eTag;
+    }
+
+    // Moves an object written directly into the song bucket (resumable uploads) into the blob store, the blob is
+    // copied server-side from the stored key
+    public void importFile(String bucketName, String objectName, String contentType) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        String storedBucketName = storageLayout.getBucket(bucketName);
+        String storedObjectName = storageLayout.getObject(bucketName, objectName);
         try {
-            if (minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build()) != null) {
-                logger.warn("File {} already exists in bucket {}, deleting it first", objectName, bucketName);
-                deleteFile(bucketName, objectName);
+            MessageDigest digest = MinioChecksum.newDigest();
+            long size;
+            try (InputStream inputStream = fileStorage.downloadFile(bucketName, objectName, null, null, null)) {
+                size = MinioHelper.copy(new DigestInputStream(inputStream, digest), OutputStream.nullOutputStream());
             }
-        } catch (ErrorResponseException ere) {
-            // Object does not exist, no need to delete
-        } catch (Exception e) {
-            throw new MinioServiceException("Error uploading " + objectName + " to bucket: " + bucketName,e);
+            String hash = MinioChecksum.toHex(digest);
+
+            minioDedupService.commitFile(bucketName, objectName, hash, size, contentType, storedBucketName, storedObjectName, null, null);
+            minioCache.invalidateListing(bucketName);
+            minioDiskCache.invalidate(bucketName, objectName);
+            logger.debug("Imported file {} of bucket {}, hash {}", objectName, bucketName, hash);
+        } catch (IOException e) {
+            throw new MinioServiceException("Error importing file from bucket: " + bucketName + ", object: " + objectName, e);
         }
+        // kept if the import failed, so it can be imported again (see migrateFile)
+        try {
+            fileStorage.deleteFile(bucketName, objectName);
+        } catch (MinioServiceException e) {
+            logger.warn("Error removing imported object {} from bucket {}", objectName, bucketName, e);
+        }
+    }
 
+    // Moves a file stored before deduplication was enabled into the blob store. Blobs hold the decoded content, so
+    // encoded files are decoded on the way. A file uploaded again in the meantime already has a newer manifest
+    // entry, then only the stored copy is removed. Returns false in that case.
+    public boolean migrateFile(String bucketName, StoredFile file) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        boolean migrated = true;
+        try (StorageInputStream storedStream = fileStorage.downloadFile(bucketName, file.getName(), null, null, null)) {
+            boolean encoded = MinioCodec.getCodec(storedStream.getUserMetadata()) != null;
+            InputStream inputStream = encoded ? MinioCodec.decode(storedStream) : storedStream;
+            uploadDeduplicated(bucketName, file.getName(), inputStream, encoded ? -1 : file.getSize(), file.getContentType(), null, "*");
+        } catch (MinioPreconditionFailedException e) {
+            logger.debug("File {} of bucket {} was uploaded again, its old copy is removed", file.getName(), bucketName);
+            migrated = false;
+        } catch (IOException e) {
+            throw new MinioServiceException("Error migrating file from bucket: " + bucketName + ", object: " + file.getName(), e);
+        }
+        fileStorage.deleteFile(bucketName, file.getName());
+        return migrated;
+    }
+
+    private void removeQuietly(String bucketName, String objectName) {
         try {
-            // Upload the new file
-            logger.info("Uploading file {} to bucket {}", objectName, bucketName);
-            minioClient.putObject(PutObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectName)
-                    .stream(inputStream, inputStream.available(), -1)
-                    .contentType(contentType)
-                    .build());
-            logger.debug("File {} uploaded successfully to bucket {}", objectName, bucketName);
-        } catch (Exception e) {
-            throw new MinioServiceException("Error uploading file to bucket: " + bucketName + ", object: " + objectName, e);
+            blobStorage.deleteFile(bucketName, objectName);
+        } catch (MinioServiceException e) {
+            logger.warn("Error removing object {} from bucket {}", objectName, bucketName, e);
         }
     }
 
 
-    public ByteArrayResource downloadFile(String bucketName, String objectName) {
+    public StoredFile statFile(String bucketName, String objectName) {
         bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            SongFile songFile = getSongFile(bucketName, objectName);
+            // the blob may be older than the file of this song, so the file info comes from the manifest
+            String contentType = songFile.getContentType() != null ? songFile.getContentType() : "application/octet-stream";
+            return new StoredFile(objectName, songFile.getSize(), songFile.getHash(), songFile.getLastModified(), contentType,
+                    MinioChecksum.getMetadata(songFile.getHash()));
+        }
+
+        StoredFile file = fileStorage.statFile(bucketName, objectName);
+        logger.debug("Stat file from bucket: {}, object: {}, size: {}", bucketName, objectName, file.getSize());
+        return file;
+    }
+
+
+    // The returned stream is read directly from the storage and must be closed by the caller
+    public InputStream downloadFile(String bucketName, String objectName) {
+        return downloadFile(bucketName, objectName, null, null);
+    }
+
+    // Reads only the given byte range of the decoded file; null offset/length means from the start/up to the end
+    public InputStream downloadFile(String bucketName, String objectName, Long offset, Long length) {
+        StorageInputStream inputStream = openObject(bucketName, objectName, offset, length);
+        String codec = MinioCodec.getCodec(inputStream.getUserMetadata());
+        if (codec == null) {
+            return offset == null && length == null ? verify(bucketName, objectName, inputStream) : inputStream;
+        }
 
         try {
-            InputStream inputStream = minioClient.getObject(GetObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectName)
-                    .build());
+            // a range of the decoded content can only be found by decoding from the start
+            if (offset != null || length != null) {
+                inputStream.close();
+                inputStream = openObject(bucketName, objectName, null, null);
+            }
+            InputStream decodedStream = MinioCodec.decode(verify(bucketName, objectName, inputStream));
+            if (offset != null) {
+                decodedStream.skipNBytes(offset);
+            }
+            return length != null ? ByteStreams.limit(decodedStream, length) : decodedStream;
+        } catch (IOException e) {
+            throw new MinioServiceException("Error decoding file from bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
 
-            byte[] content = IOUtils.toByteArray(inputStream);
+    // The decoded content of the given version (eTag); fails with FileNotFoundException if the file was replaced since
+    public InputStream downloadVersion(String bucketName, String objectName, String eTag) {
+        StorageInputStream inputStream = openVersion(bucketName, objectName, eTag, null, null);
+        InputStream verifiedStream = verify(bucketName, objectName, inputStream);
+        return MinioCodec.getCodec(inputStream.getUserMetadata()) != null ? MinioCodec.decode(verifiedStream) : verifiedStream;
+    }
 
-            logger.debug("Downloaded file from bucket: {}, object: {}", bucketName, objectName);
+    // The stored file as it is, without decoding and verification, with its checksum in the user metadata if
+    // one was recorded (e.g. for the integrity check of MinioScrubService)
+    public StorageInputStream openStoredFile(String bucketName, String objectName) {
+        return openObject(bucketName, objectName, null, null);
+    }
 
-            return new ByteArrayResource(content);
-        } catch (Exception e) {
-            throw new RuntimeException("Error downloading file from bucket: " + bucketName + ", object: " + objectName, e);
+    // Opens the object as it is stored, encoded objects are not decoded
+    private StorageInputStream openObject(String bucketName, String objectName, Long offset, Long length) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            String hash = getSongFile(bucketName, objectName).getHash();
+            return new StorageInputStream(downloadBlob(hash, offset, length), MinioChecksum.getMetadata(hash));
+        }
+
+        StorageInputStream inputStream = fileStorage.downloadFile(bucketName, objectName, null, offset, length);
+        logger.debug("Opened download from bucket: {}, object: {}, offset: {}, length: {}", bucketName, objectName, offset, length);
+        return inputStream;
+    }
+
+
+    // Only complete reads can be verified, the checksum covers the whole stored file
+    private InputStream verify(String bucketName, String objectName, StorageInputStream inputStream) {
+        String checksum = MinioChecksum.getChecksum(inputStream.getUserMetadata());
+        if (!verifyDownloads || checksum == null) {
+            return inputStream;
+        }
+        return new ChecksumInputStream(inputStream, checksum, "bucket: " + bucketName + ", object: " + objectName);
+    }
+
+    // Writes the object as it is stored (encoded objects stay encoded, see MinioCodec), or length bytes from offset,
+    // to the output stream. With the disk cache enabled, cached objects are served from disk and complete downloads
+    // of the given version (eTag) are kept for the next request.
+    public long downloadFile(String bucketName, String objectName, String eTag, long objectSize, Long offset, Long length,
+                             OutputStream outputStream) throws IOException {
+        if (minioDiskCache.isEnabled()) {
+            long rangeOffset = offset != null ? offset : 0;
+            long rangeLength = length != null ? length : objectSize - rangeOffset;
+            if (minioDiskCache.transferTo(bucketName, objectName, eTag, rangeOffset, rangeLength, outputStream)) {
+                return rangeLength;
+            }
+            if (offset == null && length == null) {
+                // a file that fails verification is not cached
+                try (InputStream inputStream = verify(bucketName, objectName, openVersion(bucketName, objectName, eTag, null, null))) {
+                    return minioDiskCache.copyAndCache(bucketName, objectName, eTag, objectSize, inputStream, outputStream);
+                }
+            }
+        }
+        // the response headers describe this version, a replaced file fails instead of sending the new content
+        if (verifyDownloads && offset == null && length == null) {
+            try (InputStream inputStream = verify(bucketName, objectName, openVersion(bucketName, objectName, eTag, null, null))) {
+                return MinioHelper.copy(inputStream, outputStream);
+            }
+        }
+        if (minioDedupService.isEnabled()) {
+            try (InputStream inputStream = openVersion(bucketName, objectName, eTag, offset, length)) {
+                return MinioHelper.copy(inputStream, outputStream);
+            }
+        }
+        long rangeOffset = offset != null ? offset : 0;
+        return fileStorage.transferTo(MinioHelper.prepareMinioBucketName(bucketName), objectName, eTag, rangeOffset,
+                length != null ? length : objectSize - rangeOffset, outputStream);
+    }
+
+    // The stored bytes of the given version as a file on the local disk, so the servlet container can send it without
+    // copying it through the JVM (sendfile). Null if it has to be written with downloadFile, e.g. because a complete
+    // download is verified.
+    public Path getLocalFile(String bucketName, String objectName, String eTag, long length, boolean complete) {
+        if (verifyDownloads && complete) {
+            return null;
+        }
+        if (minioDiskCache.isEnabled()) {
+            Path cachedFile = minioDiskCache.getCachedFile(bucketName, objectName, eTag, length);
+            if (cachedFile != null) {
+                return cachedFile;
+            }
+        }
+        // deduplicated files are blobs in MinIO, the storage only knows the song buckets
+        return minioDedupService.isEnabled() ? null : fileStorage.getLocalFile(MinioHelper.prepareMinioBucketName(bucketName), objectName, eTag);
+    }
+
+    // fails instead of returning a newer version, so the cached copy always matches its ETag
+    private StorageInputStream openVersion(String bucketName, String objectName, String eTag, Long offset, Long length) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            // blobs never change, the hash is the version
+            return new StorageInputStream(downloadBlob(eTag, offset, length), MinioChecksum.getMetadata(eTag));
+        }
+        return fileStorage.downloadFile(bucketName, objectName, eTag, offset, length);
+    }
+
+    // Presigned URLs let clients transfer directly against MinIO, the backend only signs the request
+    public String getPresignedDownloadUrl(String bucketName, String objectName, int expirySeconds) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            String hash = getSongFile(bucketName, objectName).getHash();
+            return blobStorage.getPresignedDownloadUrl(minioDedupService.getBlobBucket(), hash, expirySeconds, objectName);
+        }
+
+        String url = fileStorage.getPresignedDownloadUrl(bucketName, objectName, expirySeconds, objectName);
+        logger.debug("Created presigned download url for bucket: {}, object: {}", bucketName, objectName);
+        return url;
+    }
+
+
+    public String getPresignedUploadUrl(String bucketName, String objectName, int expirySeconds) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (minioDedupService.isEnabled()) {
+            // the content has to pass the backend to be hashed
+            throw new MinioServiceException("Presigned uploads are not available with deduplication");
         }
+
+        String url = fileStorage.getPresignedUploadUrl(bucketName, objectName, expirySeconds);
+        logger.debug("Created presigned upload url for bucket: {}, object: {}", bucketName, objectName);
+        return url;
     }
 
 
     public void deleteFile(String bucketName, String objectName) {
         bucketName = MinioHelper.prepareMinioBucketName(bucketName);
-        try {
-            minioClient.removeObject(RemoveObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(objectName)
-                    .build());
+        if (minioDedupService.isEnabled()) {
+            minioDedupService.deleteFile(bucketName, objectName);
+        }
+        fileStorage.deleteFile(bucketName, objectName);
+        minioCache.invalidateListing(bucketName);
+        minioDiskCache.invalidate(bucketName, objectName);
+        eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.DELETED, bucketName, objectName));
 
-            logger.debug("Deleted file from bucket: {}, object: {}", bucketName, objectName);
-        } catch (Exception e) {
-            throw new MinioServiceException("Error deleting file from bucket: " + bucketName + ", object: " + objectName, e);
+        logger.debug("Deleted file from bucket: {}, object: {}", bucketName, objectName);
+    }
+
+    public void copyFile(String sourceBucketName, String sourceFileName, String destinationBucketName, String destinationFileName) {
+        // Check if the source and destination buckets are different
+        if (sourceBucketName.equals(destinationBucketName)) {
+            // If source and destination buckets are the same, log and return without copying
+            logger.warn("Source and destination buckets are the same, skipping copy operation");
+            return;
         }
+
+        // Perform the copy operation
+        fileStorage.copyFile(sourceBucketName, sourceFileName, destinationBucketName, destinationFileName);
+        minioCache.invalidateListing(destinationBucketName);
+        minioDiskCache.invalidate(destinationBucketName, destinationFileName);
+        eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.STORED, destinationBucketName, destinationFileName));
+
+        // Log successful copy operation
+        logger.debug("Copied file from {} in bucket {} to {} in bucket {}", sourceFileName, sourceBucketName, destinationFileName, destinationBucketName);
     }
 
-    public void copyFile(String sourceBucketName, String sourceFileName, String destinationBucketName, String destinationFileName)
-            throws IOException, InvalidKeyException, NoSuchAlgorithmException, MinioException {
+    // Moves all files of a song to a new bucket (archive number change). The files are copied server-side in
+    // parallel, then commit runs (e.g. the database update); only if that succeeds the source bucket is removed.
+    // On failure the partial copy is removed again and the source bucket stays untouched.
+    public void moveBucket(String sourceBucketName, String destinationBucketName, MinioJob job, Runnable commit) {
+        sourceBucketName = MinioHelper.prepareMinioBucketName(sourceBucketName);
+        destinationBucketName = MinioHelper.prepareMinioBucketName(destinationBucketName);
 
+        createBucket(destinationBucketName);
+        List<String> objectNames;
+        boolean manifestMoved = false;
         try {
-            // Check if the source and destination buckets are different
-            if (sourceBucketName.equals(destinationBucketName)) {
-                // If source and destination buckets are the same, log and return without copying
-                logger.warn("Source and destination buckets are the same, skipping copy operation");
-                return;
-            }
-
-            // Perform the copy operation
-            minioClient.copyObject(
-                    CopyObjectArgs.builder()
-                            .source(CopySource.builder()
-                                    .bucket(sourceBucketName)
-                                    .object(sourceFileName)
-                                    .build())
-                            .bucket(destinationBucketName)
-                            .object(destinationFileName)
-                            .build());
-
-            // Log successful copy operation
-            logger.debug("Copied file from {} in bucket {} to {} in bucket {}", sourceFileName, sourceBucketName, destinationFileName, destinationBucketName);
-        } catch (MinioException e) {
-            // Log and re-throw any Minio-specific exceptions
-            logger.error("Error copying file from {} in bucket {} to {} in bucket {}", sourceFileName, sourceBucketName, destinationFileName, destinationBucketName, e);
+            objectNames = copyObjects(sourceBucketName, destinationBucketName, job);
+            if (minioDedupService.isEnabled()) {
+                // deduplicated files are not copied, only their manifest entries change the bucket
+                int movedFiles = minioDedupService.moveFiles(sourceBucketName, destinationBucketName);
+                manifestMoved = true;
+                job.addTotal(movedFiles);
+                job.addProcessed(movedFiles);
+            }
+            minioCache.invalidateListing(destinationBucketName);
+            eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.STORED, destinationBucketName, null));
+            commit.run();
+        } catch (RuntimeException e) {
+            logger.error("Moving bucket {} to {} failed, removing partial copy", sourceBucketName, destinationBucketName);
+            if (manifestMoved) {
+                minioDedupService.moveFiles(destinationBucketName, sourceBucketName);
+            }
+            try {
+                deleteBucket(destinationBucketName);
+            } catch (MinioServiceException deleteException) {
+                logger.error("Error removing partial copy in bucket {}", destinationBucketName, deleteException);
+            }
             throw e;
-        } catch (Exception e) {
-            // Log and re-throw any other exceptions
-            logger.error("Error copying file from {} in bucket {} to {} in bucket {}", sourceFileName, sourceBucketName, destinationFileName, destinationBucketName, e);
+        }
 
+        try {
+            deleteObjects(sourceBucketName, objectNames);
+            fileStorage.removeBucket(sourceBucketName);
+            logger.info("Moved bucket {} to {} ({} files)", sourceBucketName, destinationBucketName, objectNames.size());
+        } catch (Exception e) {
+            // the move itself is done, only the old files are left behind
+            logger.error("Error removing bucket {} after move to {}", sourceBucketName, destinationBucketName, e);
+            job.setMessage("Files moved, but the old bucket " + sourceBucketName + " could not be removed");
+        } finally {
+            minioCache.invalidateBucket(sourceBucketName);
+            minioDiskCache.invalidateBucket(sourceBucketName);
+            eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.DELETED, sourceBucketName, null));
         }
     }
 
-    public void createBucket(String bucketName) {
-        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+    private List<String> copyObjects(String sourceBucketName, String destinationBucketName, MinioJob job) {
+        List<String> objectNames = new ArrayList<>();
+        List<Future<?>> copies = new ArrayList<>();
+        // bounds the number of copies in flight, the listing is not read further ahead than that
+        Semaphore permits = new Semaphore(copyThreads);
+
         try {
-            if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
-                minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
-                logger.debug("Created bucket: {}", bucketName);
-            } else {
-                logger.warn("Bucket already exists: {}", bucketName);
+            Iterator<StoredFile> files = fileStorage.listFiles(sourceBucketName, null, null, MAX_LIST_KEYS);
+            while (files.hasNext()) {
+                String objectName = files.next().getName();
+                objectNames.add(objectName);
+                job.addTotal(1);
+
+                permits.acquire();
+                copies.add(copyExecutor.submit(() -> {
+                    try {
+                        fileStorage.copyFile(sourceBucketName, objectName, destinationBucketName, objectName);
+                        job.addProcessed(1);
+                        logger.debug("Copied {} from bucket {} to bucket {}", objectName, sourceBucketName, destinationBucketName);
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
             }
+            for (Future<?> copy : copies) {
+                copy.get();
+            }
+            return objectNames;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            copies.forEach(copy -> copy.cancel(true));
+            throw new MinioServiceException("Copying bucket " + sourceBucketName + " to " + destinationBucketName + " interrupted", e);
         } catch (Exception e) {
+            copies.forEach(copy -> copy.cancel(true));
+            throw new MinioServiceException("Error copying bucket " + sourceBucketName + " to " + destinationBucketName, e);
+        }
+    }
 
-            throw new MinioServiceException("Error creating bucket: " + bucketName, e);
+    private void deleteObjects(String bucketName, List<String> objectNames) {
+        List<String> failed = fileStorage.deleteFiles(bucketName, objectNames);
+        minioCache.invalidateListing(bucketName);
+        logger.debug("Deleted {} objects from bucket {}", objectNames.size() - failed.size(), bucketName);
+        if (!failed.isEmpty()) {
+            throw new MinioDeleteException("Error deleting objects from bucket: " + bucketName, failed);
+        }
+    }
+
+    private SongFile getSongFile(String bucketName, String objectName) {
+        return minioDedupService.getFile(bucketName, objectName)
+                .orElseThrow(() -> new FileNotFoundException("File not found in bucket: " + bucketName + ", object: " + objectName));
+    }
+
+    private StorageInputStream downloadBlob(String hash, Long offset, Long length) {
+        return blobStorage.downloadFile(minioDedupService.getBlobBucket(), hash, null, offset, length);
+    }
+
+    // Whether the archive number would name one of the buckets of the storage itself (blobs, previews, shared bucket)
+    public boolean isReservedBucketName(String bucketName) {
+        if (bucketName == null) {
+            return false;
+        }
+        String preparedBucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        return preparedBucketName.equals(blobBucket) || preparedBucketName.equals(previewBucket) || preparedBucketName.equals(layoutBucket);
+    }
+
+    public boolean bucketExists(String bucketName) {
+        return minioCache.bucketExists(bucketName, fileStorage::bucketExists);
+    }
+
+    public void createBucket(String bucketName) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (!bucketExists(bucketName)) {
+            fileStorage.createBucket(bucketName);
+            minioCache.invalidateBucket(bucketName);
+            eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.STORED, bucketName, null));
+            logger.debug("Created bucket: {}", bucketName);
+        } else {
+            logger.warn("Bucket already exists: {}", bucketName);
         }
     }
 
     public void deleteBucket(String bucketName) {
         bucketName = MinioHelper.prepareMinioBucketName(bucketName);
         try {
-            if (minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
-                // List all objects in the bucket
-                List<String> objectNames = listFiles(bucketName);
-
-                // Delete each object in the bucket
-                for (String objectName : objectNames) {
-                    deleteFile(bucketName, objectName);
-                    logger.debug("Deleted object {} from bucket {}", objectName, bucketName);
+            if (bucketExists(bucketName)) {
+                if (minioDedupService.isEnabled()) {
+                    int deletedFiles = minioDedupService.deleteFiles(bucketName);
+                    logger.debug("Deleted {} deduplicated files of bucket {}", deletedFiles, bucketName);
+                }
+
+                // Stream the listing into batches, so only one batch of keys is held in memory at a time
+                List<String> failed = new ArrayList<>();
+                List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+                Iterator<StoredFile> files = fileStorage.listFiles(bucketName, null, null, MAX_LIST_KEYS);
+                while (files.hasNext()) {
+                    batch.add(files.next().getName());
+                    if (batch.size() == DELETE_BATCH_SIZE) {
+                        failed.addAll(fileStorage.deleteFiles(bucketName, batch));
+                        batch = new ArrayList<>(DELETE_BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    failed.addAll(fileStorage.deleteFiles(bucketName, batch));
+                }
+
+                // A bucket that still contains objects cannot be removed, report which ones are left
+                if (!failed.isEmpty()) {
+                    throw new MinioDeleteException("Error deleting objects from bucket: " + bucketName, failed);
                 }
 
                 // After all objects are deleted, remove the bucket
-                minioClient.removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+                fileStorage.removeBucket(bucketName);
                 logger.info("Deleted bucket: {}", bucketName);
             } else {
 
                 throw new MinioServiceException("Bucket does not exist: " + bucketName);
             }
+        } catch (MinioServiceException e) {
+            throw e;
         } catch (Exception e) {
 
             throw new MinioServiceException("Error deleting bucket: " + bucketName, e);
+        } finally {
+            minioCache.invalidateBucket(bucketName);
+            minioDiskCache.invalidateBucket(bucketName);
+            eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.DELETED, bucketName, null));
         }
     }
 }
@@ -0,0 +1,91 @@
+package at.htlklu.bavi.minio;
+
+import io.minio.BucketExistsArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.Result;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// All songs share one MinIO bucket, the files of a song are stored under "<archive number>/".
+// An empty marker object under .songs/ records that a song exists even before its first file is uploaded;
+// it is kept outside the prefix so it never shows up in the file listing of the song.
+public class PrefixStorageLayout implements StorageLayout {
+
+    private static final String MARKER_PREFIX = ".songs/";
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+    private static final String NO_SUCH_BUCKET = "NoSuchBucket";
+
+    private final MinioClient minioClient;
+    private final String bucket;
+    private volatile boolean bucketChecked;
+
+    public PrefixStorageLayout(MinioClient minioClient, String bucket) {
+        this.minioClient = minioClient;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String getBucket(String bucketName) {
+        return bucket;
+    }
+
+    @Override
+    public String getPrefix(String bucketName) {
+        return bucketName + "/";
+    }
+
+    @Override
+    public boolean exists(String bucketName) throws Exception {
+        try {
+            minioClient.statObject(StatObjectArgs.builder().bucket(bucket).object(MARKER_PREFIX + bucketName).build());
+            return true;
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if (NO_SUCH_KEY.equals(code) || NO_SUCH_BUCKET.equals(code)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> list() throws Exception {
+        List<String> bucketNames = new ArrayList<>();
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+            return bucketNames;
+        }
+        for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder().bucket(bucket).prefix(MARKER_PREFIX).build())) {
+            bucketNames.add(result.get().objectName().substring(MARKER_PREFIX.length()));
+        }
+        return bucketNames;
+    }
+
+    @Override
+    public void create(String bucketName) throws Exception {
+        if (!bucketChecked) {
+            if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+                minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+            }
+            bucketChecked = true;
+        }
+        minioClient.putObject(PutObjectArgs.builder()
+                .bucket(bucket)
+                .object(MARKER_PREFIX + bucketName)
+                .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
+                .build());
+    }
+
+    @Override
+    public void remove(String bucketName) throws Exception {
+        minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(MARKER_PREFIX + bucketName).build());
+    }
+}
@@ -0,0 +1,20 @@
+package at.htlklu.bavi.minio;
+
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+// Content of a stored object together with its user metadata, which is needed to decode it (see MinioCodec)
+public class StorageInputStream extends FilterInputStream {
+
+    private final Map<String, String> userMetadata;
+
+    public StorageInputStream(InputStream inputStream, Map<String, String> userMetadata) {
+        super(inputStream);
+        this.userMetadata = userMetadata;
+    }
+
+    public Map<String, String> getUserMetadata() {
+        return userMetadata;
+    }
+}
@@ -0,0 +1,32 @@
+package at.htlklu.bavi.minio;
+
+import java.util.List;
+
+// Maps the storage of a song (its "bucket", named after the archive number) to a MinIO bucket and a key prefix.
+// All bucket names passed in are already prepared (see MinioHelper.prepareMinioBucketName).
+public interface StorageLayout {
+
+    // MinIO bucket holding the files of the song
+    String getBucket(String bucketName);
+
+    // key prefix of the files of the song, empty if the song has a bucket of its own
+    String getPrefix(String bucketName);
+
+    default String getObject(String bucketName, String fileName) {
+        return getPrefix(bucketName) + fileName;
+    }
+
+    default String getFileName(String bucketName, String objectName) {
+        return objectName.substring(getPrefix(bucketName).length());
+    }
+
+    boolean exists(String bucketName) throws Exception;
+
+    // names of all stored songs
+    List<String> list() throws Exception;
+
+    void create(String bucketName) throws Exception;
+
+    // Removes the (empty) storage of the song, its files have to be deleted before
+    void remove(String bucketName) throws Exception;
+}
@@ -0,0 +1,13 @@
+package at.htlklu.bavi.minio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// An opened range of a stored object (see FileStorage.openTransfer). Opening is the call to the storage, writing
+// the content is paced by the client, so the two can be limited separately (see BulkheadFileStorage).
+public interface StorageTransfer extends Closeable {
+
+    // Writes the range to the output stream, returns the number of bytes written
+    long transferTo(OutputStream outputStream) throws IOException;
+}
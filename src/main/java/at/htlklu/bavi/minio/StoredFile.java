@@ -0,0 +1,48 @@
+package at.htlklu.bavi.minio;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Stored object as reported by a FileStorage, user metadata keys are lower case and without the x-amz-meta- prefix
+public class StoredFile {
+
+    private final String name;
+    private final long size;
+    private final String eTag;
+    private final Instant lastModified;
+    private final String contentType;
+    private final Map<String, String> userMetadata;
+
+    public StoredFile(String name, long size, String eTag, Instant lastModified, String contentType, Map<String, String> userMetadata) {
+        this.name = name;
+        this.size = size;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+        this.userMetadata = userMetadata;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Map<String, String> getUserMetadata() {
+        return userMetadata;
+    }
+}
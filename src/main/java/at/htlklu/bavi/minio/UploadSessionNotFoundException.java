@@ -0,0 +1,12 @@
+package at.htlklu.bavi.minio;
+
+public class UploadSessionNotFoundException extends MinioServiceException {
+
+    public UploadSessionNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public UploadSessionNotFoundException(String message) {
+        super(message);
+    }
+}
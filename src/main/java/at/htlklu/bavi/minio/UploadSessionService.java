@@ -0,0 +1,273 @@
+package at.htlklu.bavi.minio;
+
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.model.UploadSession;
+import at.htlklu.bavi.repository.SongsRepository;
+import at.htlklu.bavi.repository.UploadSessionsRepository;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+import io.minio.messages.Upload;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+// Resumable uploads: every chunk is a part of an S3 multipart upload, a failed chunk can be sent again
+// without touching the parts that already arrived. Sessions are stored in the database, the parts are listed
+// from MinIO, so an upload can be resumed after a restart and on any instance.
+@Service
+public class UploadSessionService {
+
+    private static final Logger logger = LogManager.getLogger(UploadSessionService.class);
+
+    // S3 limits
+    public static final int MAX_PART_NUMBER = 10000;
+
+    private static final String NO_SUCH_UPLOAD = "NoSuchUpload";
+
+    @Autowired
+    private MinioMultipartClient minioMultipartClient;
+
+    @Autowired
+    private UploadSessionsRepository uploadSessionsRepository;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    // The parts are uploaded directly as a MinIO multipart upload. These calls do not pass the bulkhead of the
+    // FileStorage, they run on the async client whose dispatcher limits them (see MinioConfig.minioHttpClient).
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private MinioDedupService minioDedupService;
+
+    @Autowired
+    private SongsRepository songsRepository;
+
+    @Autowired
+    private MinioCache minioCache;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MinioDiskCache minioDiskCache;
+
+    @Value("${minio.upload.sessionTimeout:PT24H}")
+    private Duration sessionTimeout;
+
+    public UploadSession createSession(String bucketName, String objectName, String contentType) {
+        bucketName = MinioHelper.prepareMinioBucketName(bucketName);
+        if (!fileStorage.isMinio()) {
+            throw new MinioServiceException("Resumable uploads are only available with the MinIO storage");
+        }
+
+        try {
+            String uploadId = minioMultipartClient.createUpload(storageLayout.getBucket(bucketName),
+                    storageLayout.getObject(bucketName, objectName), contentType);
+            UploadSession session = uploadSessionsRepository.save(
+                    new UploadSession(UUID.randomUUID().toString(), bucketName, objectName, contentType, uploadId));
+
+            logger.info("Created upload session {} for bucket: {}, object: {}", session.getSessionId(), bucketName, objectName);
+            return session;
+        } catch (Exception e) {
+            throw new MinioServiceException("Error creating upload session for bucket: " + bucketName + ", object: " + objectName, e);
+        }
+    }
+
+    public UploadSession getSession(String sessionId) {
+        return uploadSessionsRepository.findById(sessionId)
+                .orElseThrow(() -> new UploadSessionNotFoundException("Upload session not found: " + sessionId));
+    }
+
+    // part number -> ETag of the last successful upload of that part, as received by MinIO
+    public Map<Integer, String> getParts(UploadSession session) {
+        Map<Integer, String> parts = new TreeMap<>();
+        try {
+            ListPartsResult result;
+            int partNumberMarker = 0;
+            do {
+                result = minioMultipartClient.listParts(getBucket(session), getObject(session), session.getUploadId(), partNumberMarker);
+                result.partList().forEach(part -> parts.put(part.partNumber(), part.etag()));
+                partNumberMarker = result.nextPartNumberMarker();
+            } while (result.isTruncated());
+            return parts;
+        } catch (Exception e) {
+            throw new MinioServiceException("Error listing parts of upload session: " + session.getSessionId(), e);
+        }
+    }
+
+    // Idempotent: uploading the same part number again replaces the previous chunk
+    public void uploadChunk(String sessionId, int partNumber, byte[] data) {
+        UploadSession session = getSession(sessionId);
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException("Part number must be between 1 and " + MAX_PART_NUMBER);
+        }
+
+        try {
+            minioMultipartClient.uploadPart(getBucket(session), getObject(session), session.getUploadId(), partNumber, data);
+            uploadSessionsRepository.touch(sessionId, Instant.now());
+
+            logger.debug("Uploaded part {} ({} bytes) of session {}", partNumber, data.length, sessionId);
+        } catch (Exception e) {
+            throw new MinioServiceException("Error uploading part " + partNumber + " of upload session: " + sessionId, e);
+        }
+    }
+
+    // The parts are assembled into the file, then it is imported into the blob store (deduplication) or its checksum
+    // is recorded, which reads the file once. The session is only removed after that, so a completion that failed
+    // on the way can be sent again; it continues after the assembly if that already succeeded.
+    public void completeSession(String sessionId) {
+        UploadSession session = getSession(sessionId);
+        if (session.getCompletedAt() == null) {
+            assemble(session);
+        }
+
+        try {
+            if (minioService.isDeduplicated()) {
+                minioService.importFile(session.getBucketName(), session.getObjectName(), session.getContentType());
+            } else {
+                minioService.recordChecksum(session.getBucketName(), session.getObjectName());
+            }
+            uploadSessionsRepository.delete(session);
+            minioCache.invalidateListing(session.getBucketName());
+            minioDiskCache.invalidate(session.getBucketName(), session.getObjectName());
+            eventPublisher.publishEvent(new MinioFileEvent(MinioFileEvent.Type.STORED, session.getBucketName(), session.getObjectName()));
+
+            logger.info("Completed upload session {} for bucket: {}, object: {}", sessionId, session.getBucketName(), session.getObjectName());
+        } catch (Exception e) {
+            throw new MinioServiceException("Error completing upload session: " + sessionId, e);
+        }
+    }
+
+    // All parts but the last one must be at least 5 MiB, otherwise MinIO rejects the upload
+    private void assemble(UploadSession session) {
+        Part[] parts = getParts(session).entrySet().stream()
+                .map(entry -> new Part(entry.getKey(), entry.getValue()))
+                .toArray(Part[]::new);
+        if (parts.length == 0) {
+            throw new IllegalArgumentException("Upload session " + session.getSessionId() + " has no parts");
+        }
+
+        try {
+            minioMultipartClient.completeUpload(getBucket(session), getObject(session), session.getUploadId(), parts);
+            session.setCompletedAt(Instant.now());
+            uploadSessionsRepository.save(session);
+            logger.debug("Assembled {} parts of upload session {}", parts.length, session.getSessionId());
+        } catch (Exception e) {
+            throw new MinioServiceException("Error completing upload session: " + session.getSessionId(), e);
+        }
+    }
+
+    public void abortSession(String sessionId) {
+        UploadSession session = getSession(sessionId);
+        abort(session);
+    }
+
+    // Aborts the sessions idle for longer than the timeout, then the multipart uploads without a session that are
+    // older than the timeout (left behind by a crash or by an upload of unknown length that was interrupted).
+    // Only the buckets of this application are searched, other applications may share the MinIO server. A file
+    // assembled but never imported stays in the song bucket, the deduplication migration picks it up.
+    @Scheduled(fixedDelayString = "${minio.upload.cleanupInterval:PT1H}")
+    public void cleanupAbandonedSessions() {
+        Instant expiredBefore = Instant.now().minus(sessionTimeout);
+        for (UploadSession session : uploadSessionsRepository.findByLastActivityBefore(expiredBefore)) {
+            logger.warn("Upload session {} abandoned since {}, aborting", session.getSessionId(), session.getLastActivity());
+            try {
+                abort(session);
+            } catch (MinioServiceException e) {
+                logger.error("Error aborting upload session {}: {}", session.getSessionId(), e.getMessage());
+            }
+        }
+        if (fileStorage.isMinio()) {
+            try {
+                for (String storedBucketName : listStoredBuckets()) {
+                    abortOrphanedUploads(storedBucketName, expiredBefore);
+                }
+            } catch (Exception e) {
+                logger.error("Error cleaning up orphaned multipart uploads: {}", e.getMessage());
+            }
+        }
+    }
+
+    // The buckets holding the songs (one shared bucket with the prefix layout) and the blob bucket, which receives
+    // the deduplicated uploads
+    private Set<String> listStoredBuckets() throws Exception {
+        Set<String> storedBucketNames = new TreeSet<>();
+        for (Song song : songsRepository.findAll()) {
+            if (song.getArchivNumber() != null) {
+                String bucketName = MinioHelper.prepareMinioBucketName(song.getArchivNumber());
+                if (storageLayout.exists(bucketName)) {
+                    storedBucketNames.add(storageLayout.getBucket(bucketName));
+                }
+            }
+        }
+        if (minioDedupService.isEnabled()) {
+            storedBucketNames.add(minioDedupService.getBlobBucket());
+        }
+        return storedBucketNames;
+    }
+
+    private void abortOrphanedUploads(String storedBucketName, Instant expiredBefore) throws Exception {
+        ListMultipartUploadsResult result;
+        String keyMarker = null;
+        String uploadIdMarker = null;
+        do {
+            result = minioMultipartClient.listUploads(storedBucketName, keyMarker, uploadIdMarker);
+            for (Upload upload : result.uploads()) {
+                if (upload.initiated().toInstant().isBefore(expiredBefore) && !uploadSessionsRepository.existsByUploadId(upload.uploadId())) {
+                    logger.warn("Multipart upload of bucket: {}, object: {} orphaned since {}, aborting", storedBucketName, upload.objectName(), upload.initiated());
+                    try {
+                        minioMultipartClient.abortUpload(storedBucketName, upload.objectName(), upload.uploadId());
+                    } catch (Exception e) {
+                        logger.error("Error aborting multipart upload {}: {}", upload.uploadId(), e.getMessage());
+                    }
+                }
+            }
+            keyMarker = result.nextKeyMarker();
+            uploadIdMarker = result.nextUploadIdMarker();
+        } while (result.isTruncated());
+    }
+
+    private void abort(UploadSession session) {
+        try {
+            minioMultipartClient.abortUpload(getBucket(session), getObject(session), session.getUploadId());
+        } catch (ErrorResponseException e) {
+            // already aborted, e.g. by MinIO's own expiry or another instance
+            if (!NO_SUCH_UPLOAD.equals(e.errorResponse().code())) {
+                throw new MinioServiceException("Error aborting upload session: " + session.getSessionId(), e);
+            }
+        } catch (Exception e) {
+            throw new MinioServiceException("Error aborting upload session: " + session.getSessionId(), e);
+        }
+        uploadSessionsRepository.delete(session);
+
+        logger.info("Aborted upload session {} for bucket: {}, object: {}", session.getSessionId(), session.getBucketName(), session.getObjectName());
+    }
+
+    // sessions keep the song and file name, the stored location depends on the storage layout
+    private String getBucket(UploadSession session) {
+        return storageLayout.getBucket(session.getBucketName());
+    }
+
+    private String getObject(UploadSession session) {
+        return storageLayout.getObject(session.getBucketName(), session.getObjectName());
+    }
+}
@@ -0,0 +1,77 @@
+package at.htlklu.bavi.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import org.springframework.hateoas.RepresentationModel;
+
+
+import java.io.Serial;
+import java.io.Serializable;
+
+// File content stored once in the blob bucket under its SHA-256 hash, referenced by SongFile entries
+@Entity
+@Table(name = "FileBlob")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class FileBlob extends RepresentationModel<FileBlob> implements Serializable {
+    //region static Properties
+    @Serial
+    private static final long serialVersionUID = -6574326723164905323L;
+
+    //endregion
+
+
+    //region Properties
+    @Id
+    @Column(name = "HASH")
+    private String hash;
+
+    @Column(name = "SIZE")
+    private Long size;
+
+    // number of SongFile entries with this content, the blob is removed when it drops to 0
+    @Column(name = "REF_COUNT")
+    private Integer refCount;
+
+    //endregion
+
+
+    //region Constructors
+
+    public FileBlob() {
+
+    }
+
+    //endregion
+
+
+    //region Getter and Setter
+
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    //endregion
+
+
+}
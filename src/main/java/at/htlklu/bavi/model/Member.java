@@ -6,6 +6,8 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.RepresentationModel;
 
@@ -67,6 +69,7 @@ public class Member extends RepresentationModel<Member> implements Serializable
     // https://www.baeldung.com/jpa-many-to-many
     @JsonIgnore
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(
             name = "MemberRole",
             joinColumns = @JoinColumn(name = "MEMBER_ID"),
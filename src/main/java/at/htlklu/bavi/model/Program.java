@@ -0,0 +1,106 @@
+package at.htlklu.bavi.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.hateoas.RepresentationModel;
+
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// A concert program: a named, ordered list of songs
+@Entity
+@Table(name = "Program")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class Program extends RepresentationModel<Program> implements Serializable {
+    //region static Properties
+    @Serial
+    private static final long serialVersionUID = -6574326723164905323L;
+
+    //endregion
+
+
+    //region Properties
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "PROGRAM_ID")
+    private Integer programId;
+
+    @NotBlank
+    private String name;
+
+    @NotNull
+    @Column(name = "CREATED_BY")
+    private String createdBy;
+
+    // the position in the list is the order in which the songs are played
+    @ManyToMany
+    @JoinTable(
+            name = "ProgramSong",
+            joinColumns = @JoinColumn(name = "PROGRAM_ID"),
+            inverseJoinColumns = @JoinColumn(name = "SONG_ID")
+    )
+    @OrderColumn(name = "POSITION")
+    private List<Song> songs = new ArrayList<>();
+
+    //endregion
+
+
+    //region Constructors
+
+    public Program() {
+
+    }
+
+    public Program(Integer programId, String name, String createdBy) {
+        this.programId = programId;
+        this.name = name;
+        this.createdBy = createdBy;
+    }
+
+    //endregion
+
+
+    //region Getter and Setter
+
+
+    public Integer getProgramId() {
+        return programId;
+    }
+
+    public void setProgramId(Integer programId) {
+        this.programId = programId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public List<Song> getSongs() {
+        return songs;
+    }
+
+    public void setSongs(List<Song> songs) {
+        this.songs = songs;
+    }
+
+    //endregion
+
+
+}
@@ -17,12 +17,21 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "Song")
+// the associations serialized with a song, loaded in the same select (see SongsRepository)
+@NamedEntityGraph(name = Song.DETAILS_GRAPH, attributeNodes = {
+        @NamedAttributeNode("publisher"),
+        @NamedAttributeNode("genre"),
+        @NamedAttributeNode("composer"),
+        @NamedAttributeNode("member")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Song extends RepresentationModel<Song> implements Serializable {
     //region static Properties
     @Serial
     private static final long serialVersionUID = -6574326723164905323L;
 
+    public static final String DETAILS_GRAPH = "Song.details";
+
     //endregion
 
 
@@ -0,0 +1,127 @@
+package at.htlklu.bavi.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import org.springframework.hateoas.RepresentationModel;
+
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+
+// Manifest entry of a song: the file name in the song's bucket and the hash of its content
+@Entity
+@Table(name = "SongFile")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class SongFile extends RepresentationModel<SongFile> implements Serializable {
+    //region static Properties
+    @Serial
+    private static final long serialVersionUID = -6574326723164905323L;
+
+    //endregion
+
+
+    //region Properties
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "SONG_FILE_ID")
+    private Integer songFileId;
+
+    @Column(name = "BUCKET_NAME")
+    private String bucketName;
+
+    @Column(name = "FILE_NAME")
+    private String fileName;
+
+    @Column(name = "HASH")
+    private String hash;
+
+    @Column(name = "SIZE")
+    private Long size;
+
+    @Column(name = "CONTENT_TYPE")
+    private String contentType;
+
+    @Column(name = "LAST_MODIFIED")
+    private Instant lastModified;
+
+    //endregion
+
+
+    //region Constructors
+
+    public SongFile() {
+
+    }
+
+    public SongFile(String bucketName, String fileName) {
+        this.bucketName = bucketName;
+        this.fileName = fileName;
+    }
+
+    //endregion
+
+
+    //region Getter and Setter
+
+
+    public Integer getSongFileId() {
+        return songFileId;
+    }
+
+    public void setSongFileId(Integer songFileId) {
+        this.songFileId = songFileId;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public void setBucketName(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    //endregion
+
+
+}
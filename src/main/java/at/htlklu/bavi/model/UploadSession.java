@@ -0,0 +1,144 @@
+package at.htlklu.bavi.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import org.springframework.hateoas.RepresentationModel;
+
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+
+// Resumable upload (see UploadSessionService), kept in the database so it survives restarts and can be continued
+// on any instance. The received parts are not stored here, MinIO lists them for the upload id.
+@Entity
+@Table(name = "UploadSession")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class UploadSession extends RepresentationModel<UploadSession> implements Serializable {
+    //region static Properties
+    @Serial
+    private static final long serialVersionUID = -6574326723164905323L;
+
+    //endregion
+
+
+    //region Properties
+    @Id
+    @Column(name = "SESSION_ID")
+    private String sessionId;
+
+    @Column(name = "BUCKET_NAME")
+    private String bucketName;
+
+    @Column(name = "FILE_NAME")
+    private String objectName;
+
+    @Column(name = "CONTENT_TYPE")
+    private String contentType;
+
+    // id of the S3 multipart upload
+    @Column(name = "UPLOAD_ID")
+    private String uploadId;
+
+    @Column(name = "CREATED_AT")
+    private Instant createdAt;
+
+    @Column(name = "LAST_ACTIVITY")
+    private Instant lastActivity;
+
+    // set once the multipart upload is assembled, the session is kept until the file is imported
+    @Column(name = "COMPLETED_AT")
+    private Instant completedAt;
+
+    //endregion
+
+
+    //region Constructors
+
+    public UploadSession() {
+
+    }
+
+    public UploadSession(String sessionId, String bucketName, String objectName, String contentType, String uploadId) {
+        this.sessionId = sessionId;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.contentType = contentType;
+        this.uploadId = uploadId;
+        this.createdAt = Instant.now();
+        this.lastActivity = this.createdAt;
+    }
+
+    //endregion
+
+
+    //region Getter and Setter
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public void setBucketName(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getLastActivity() {
+        return lastActivity;
+    }
+
+    public void setLastActivity(Instant lastActivity) {
+        this.lastActivity = lastActivity;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    //endregion
+
+
+}
@@ -0,0 +1,38 @@
+package at.htlklu.bavi.payload.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+
+public class UploadSessionRequest {
+    @NotBlank
+    private String archivNumber;
+
+    @NotBlank
+    private String file;
+
+    private String contentType;
+
+    public String getArchivNumber() {
+        return archivNumber;
+    }
+
+    public void setArchivNumber(String archivNumber) {
+        this.archivNumber = archivNumber;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+}
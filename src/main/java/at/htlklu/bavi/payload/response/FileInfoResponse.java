@@ -0,0 +1,59 @@
+package at.htlklu.bavi.payload.response;
+
+import java.time.Instant;
+
+public class FileInfoResponse {
+    private String name;
+    private long size;
+    private String eTag;
+    private Instant lastModified;
+    private String contentType;
+
+    public FileInfoResponse(String name, long size, String eTag, Instant lastModified, String contentType) {
+        this.name = name;
+        this.size = size;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+}
@@ -0,0 +1,70 @@
+package at.htlklu.bavi.payload.response;
+
+import java.time.LocalDate;
+
+// Member of the member list without address and password, selected by MembersRepository.findSummaries
+public class MemberSummary {
+    private Integer memberId;
+    private String firstname;
+    private String surname;
+    private String email;
+    private String phone;
+    private LocalDate dateJoined;
+
+    public MemberSummary(Integer memberId, String firstname, String surname, String email, String phone, LocalDate dateJoined) {
+        this.memberId = memberId;
+        this.firstname = firstname;
+        this.surname = surname;
+        this.email = email;
+        this.phone = phone;
+        this.dateJoined = dateJoined;
+    }
+
+    public Integer getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(Integer memberId) {
+        this.memberId = memberId;
+    }
+
+    public String getFirstname() {
+        return firstname;
+    }
+
+    public void setFirstname(String firstname) {
+        this.firstname = firstname;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+
+    public LocalDate getDateJoined() {
+        return dateJoined;
+    }
+
+    public void setDateJoined(LocalDate dateJoined) {
+        this.dateJoined = dateJoined;
+    }
+}
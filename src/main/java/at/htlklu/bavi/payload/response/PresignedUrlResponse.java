@@ -0,0 +1,39 @@
+package at.htlklu.bavi.payload.response;
+
+import java.time.Instant;
+
+public class PresignedUrlResponse {
+    private String url;
+    private String method;
+    private Instant expiresAt;
+
+    public PresignedUrlResponse(String url, String method, Instant expiresAt) {
+        this.url = url;
+        this.method = method;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
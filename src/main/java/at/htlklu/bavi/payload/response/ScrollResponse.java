@@ -0,0 +1,30 @@
+package at.htlklu.bavi.payload.response;
+
+import java.util.List;
+
+// One batch of a keyset-paginated collection, nextToken is null after the last batch
+public class ScrollResponse<T> {
+    private List<T> content;
+    private String nextToken;
+
+    public ScrollResponse(List<T> content, String nextToken) {
+        this.content = content;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+}
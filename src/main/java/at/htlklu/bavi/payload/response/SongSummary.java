@@ -0,0 +1,112 @@
+package at.htlklu.bavi.payload.response;
+
+import java.time.LocalDate;
+
+// Song of the song list with the names of its composer, genre and publisher, selected by SongsRepository.findSummaries
+public class SongSummary {
+    private Integer songId;
+    private String title;
+    private String archivNumber;
+    private LocalDate dateCreated;
+    private Integer composerId;
+    private String composerName;
+    private Integer genreId;
+    private String genreName;
+    private Integer publisherId;
+    private String publisherName;
+
+    public SongSummary(Integer songId, String title, String archivNumber, LocalDate dateCreated,
+                       Integer composerId, String composerFirstname, String composerSurname,
+                       Integer genreId, String genreName, Integer publisherId, String publisherName) {
+        this.songId = songId;
+        this.title = title;
+        this.archivNumber = archivNumber;
+        this.dateCreated = dateCreated;
+        this.composerId = composerId;
+        this.composerName = composerId != null ? String.join(" ", composerFirstname, composerSurname) : null;
+        this.genreId = genreId;
+        this.genreName = genreName;
+        this.publisherId = publisherId;
+        this.publisherName = publisherName;
+    }
+
+    public Integer getSongId() {
+        return songId;
+    }
+
+    public void setSongId(Integer songId) {
+        this.songId = songId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getArchivNumber() {
+        return archivNumber;
+    }
+
+    public void setArchivNumber(String archivNumber) {
+        this.archivNumber = archivNumber;
+    }
+
+    public LocalDate getDateCreated() {
+        return dateCreated;
+    }
+
+    public void setDateCreated(LocalDate dateCreated) {
+        this.dateCreated = dateCreated;
+    }
+
+    public Integer getComposerId() {
+        return composerId;
+    }
+
+    public void setComposerId(Integer composerId) {
+        this.composerId = composerId;
+    }
+
+    public String getComposerName() {
+        return composerName;
+    }
+
+    public void setComposerName(String composerName) {
+        this.composerName = composerName;
+    }
+
+    public Integer getGenreId() {
+        return genreId;
+    }
+
+    public void setGenreId(Integer genreId) {
+        this.genreId = genreId;
+    }
+
+    public String getGenreName() {
+        return genreName;
+    }
+
+    public void setGenreName(String genreName) {
+        this.genreName = genreName;
+    }
+
+    public Integer getPublisherId() {
+        return publisherId;
+    }
+
+    public void setPublisherId(Integer publisherId) {
+        this.publisherId = publisherId;
+    }
+
+    public String getPublisherName() {
+        return publisherName;
+    }
+
+    public void setPublisherName(String publisherName) {
+        this.publisherName = publisherName;
+    }
+}
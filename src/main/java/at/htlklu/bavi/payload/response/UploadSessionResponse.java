@@ -0,0 +1,74 @@
+package at.htlklu.bavi.payload.response;
+
+import at.htlklu.bavi.model.UploadSession;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class UploadSessionResponse {
+    private String sessionId;
+    private String bucketName;
+    private String file;
+    private List<Integer> receivedParts;
+    private Instant createdAt;
+    private Instant lastActivity;
+
+    public UploadSessionResponse(UploadSession session, Map<Integer, String> parts) {
+        this.sessionId = session.getSessionId();
+        this.bucketName = session.getBucketName();
+        this.file = session.getObjectName();
+        this.receivedParts = new ArrayList<>(parts.keySet());
+        this.createdAt = session.getCreatedAt();
+        this.lastActivity = session.getLastActivity();
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public void setBucketName(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public List<Integer> getReceivedParts() {
+        return receivedParts;
+    }
+
+    public void setReceivedParts(List<Integer> receivedParts) {
+        this.receivedParts = receivedParts;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getLastActivity() {
+        return lastActivity;
+    }
+
+    public void setLastActivity(Instant lastActivity) {
+        this.lastActivity = lastActivity;
+    }
+}
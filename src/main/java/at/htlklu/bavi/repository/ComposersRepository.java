@@ -1,9 +1,25 @@
 package at.htlklu.bavi.repository;
 
 import at.htlklu.bavi.model.Composer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ComposersRepository extends JpaRepository<Composer, Integer> {
+
+    // the lists come from the query cache until the Composer table is written (see application.properties)
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<Composer> findAll();
+
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    Page<Composer> findAll(Pageable pageable);
 }
@@ -0,0 +1,29 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.FileBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FileBlobsRepository extends JpaRepository<FileBlob, String>, FileBlobsRepositoryCustom {
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update FileBlob b set b.refCount = b.refCount - 1 where b.hash = :hash")
+    void removeReference(@Param("hash") String hash);
+
+    // candidates of the sweep, the count is checked again under the row lock
+    @Query("select b.hash from FileBlob b where b.refCount <= 0")
+    List<String> findUnreferencedHashes();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from FileBlob b where b.hash = :hash")
+    Optional<FileBlob> findForUpdate(@Param("hash") String hash);
+}
@@ -0,0 +1,8 @@
+package at.htlklu.bavi.repository;
+
+public interface FileBlobsRepositoryCustom {
+
+    // Inserts the blob with one reference or increments its count, atomic, concurrent uploads of the same new
+    // content cannot both insert the blob. Locks the blob row until the transaction commits.
+    void addReference(String hash, long size);
+}
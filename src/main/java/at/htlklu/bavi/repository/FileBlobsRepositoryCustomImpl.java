@@ -0,0 +1,28 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.FileBlob;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+
+// The upsert has no JPQL equivalent and stays native. Hibernate does not know which tables a native update
+// touches and would invalidate every second-level cache region, so the query declares FileBlob as its only
+// query space.
+public class FileBlobsRepositoryCustomImpl implements FileBlobsRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void addReference(String hash, long size) {
+        // pending changes are written first, FileBlob rows loaded in this persistence context are not refreshed
+        entityManager.flush();
+        entityManager.createNativeQuery("INSERT INTO FileBlob (HASH, SIZE, REF_COUNT) VALUES (:hash, :size, 1) "
+                        + "ON DUPLICATE KEY UPDATE REF_COUNT = REF_COUNT + 1")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(FileBlob.class)
+                .setParameter("hash", hash)
+                .setParameter("size", size)
+                .executeUpdate();
+    }
+}
@@ -7,7 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface MembersRepository extends JpaRepository<Member, Integer> {
+public interface MembersRepository extends JpaRepository<Member, Integer>, MembersRepositoryCustom {
 
     Optional<Member> findByEmail(String email);
 }
@@ -0,0 +1,12 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.payload.response.MemberSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface MembersRepositoryCustom {
+
+    // The member list selects only the columns of MemberSummary. Sort properties refer to the member, unknown
+    // ones fail with PropertyReferenceException.
+    Page<MemberSummary> findSummaries(Pageable pageable);
+}
@@ -0,0 +1,50 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.Member;
+import at.htlklu.bavi.payload.response.MemberSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+// Criteria query with a constructor expression, the sort properties are resolved against Member
+public class MembersRepositoryCustomImpl implements MembersRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<MemberSummary> findSummaries(Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MemberSummary> query = builder.createQuery(MemberSummary.class);
+        Root<Member> member = query.from(Member.class);
+        query.select(builder.construct(MemberSummary.class,
+                member.get("memberId"), member.get("firstname"), member.get("surname"),
+                member.get("email"), member.get("phone"), member.get("dateJoined")));
+        // an unknown sort property fails with PropertyReferenceException
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), member, builder));
+
+        TypedQuery<MemberSummary> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<MemberSummary> members = typedQuery.getResultList();
+        return PageableExecutionUtils.getPage(members, pageable, this::count);
+    }
+
+    private long count() {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        query.select(builder.count(query.from(Member.class)));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,14 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.Program;
+import at.htlklu.bavi.model.Song;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProgramsRepository extends JpaRepository<Program, Integer> {
+
+    List<Program> findBySongsContaining(Song song);
+}
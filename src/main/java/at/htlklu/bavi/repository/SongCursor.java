@@ -0,0 +1,75 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.payload.response.SongSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in the keyset pagination of songs: the sort key and id of the last song of a page. Clients get it as
+// an opaque token and pass it back unchanged for the next page.
+public class SongCursor {
+
+    public enum Sort {
+        // A to Z
+        TITLE,
+        // newest first
+        DATE_CREATED
+    }
+
+    private final Sort sort;
+    private final String title;
+    private final LocalDate dateCreated;
+    private final Integer songId;
+
+    private SongCursor(Sort sort, String title, LocalDate dateCreated, Integer songId) {
+        this.sort = sort;
+        this.title = title;
+        this.dateCreated = dateCreated;
+        this.songId = songId;
+    }
+
+    public static SongCursor after(Sort sort, SongSummary song) {
+        return new SongCursor(sort, song.getTitle(), song.getDateCreated(), song.getSongId());
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public LocalDate getDateCreated() {
+        return dateCreated;
+    }
+
+    public Integer getSongId() {
+        return songId;
+    }
+
+    // sort, id and key separated by "|", the key last as the title may contain the separator
+    public String encode() {
+        String key = sort == Sort.TITLE ? title : dateCreated.toString();
+        String value = sort.name() + "|" + songId + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SongCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid continuation token");
+            }
+            Sort sort = Sort.valueOf(parts[0]);
+            Integer songId = Integer.valueOf(parts[1]);
+            return sort == Sort.TITLE
+                    ? new SongCursor(sort, parts[2], null, songId)
+                    : new SongCursor(sort, null, LocalDate.parse(parts[2]), songId);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+    }
+}
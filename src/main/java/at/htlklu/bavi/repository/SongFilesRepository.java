@@ -0,0 +1,34 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.SongFile;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SongFilesRepository extends JpaRepository<SongFile, Integer> {
+
+    Optional<SongFile> findByBucketNameAndFileName(String bucketName, String fileName);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select f from SongFile f where f.bucketName = :bucketName and f.fileName = :fileName")
+    Optional<SongFile> findForUpdate(@Param("bucketName") String bucketName, @Param("fileName") String fileName);
+
+    List<SongFile> findByBucketNameOrderByFileName(String bucketName);
+
+    List<SongFile> findByBucketNameOrderByFileName(String bucketName, Pageable pageable);
+
+    List<SongFile> findByBucketNameAndFileNameGreaterThanOrderByFileName(String bucketName, String fileName, Pageable pageable);
+
+    @Modifying
+    @Query("update SongFile f set f.bucketName = :destinationBucketName where f.bucketName = :sourceBucketName")
+    int moveFiles(@Param("sourceBucketName") String sourceBucketName, @Param("destinationBucketName") String destinationBucketName);
+}
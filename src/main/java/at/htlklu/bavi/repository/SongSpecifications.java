@@ -0,0 +1,43 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.Song;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+// Filters of the song list, a null argument leaves the filter out
+public class SongSpecifications {
+
+    // ! instead of a backslash, which MySQL treats as escape character in the literal itself
+    private static final char LIKE_ESCAPE = '!';
+
+    // The wildcards % and _ in the title are escaped, so a search for "100%" does not match every title starting with "100"
+    public static Specification<Song> titleContains(String title) {
+        return (root, query, builder) -> title == null ? null
+                : builder.like(builder.lower(root.get("title")), "%" + escapeLike(title.toLowerCase()) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<Song> hasGenre(Integer genreId) {
+        return (root, query, builder) -> genreId == null ? null : builder.equal(root.get("genre").get("genreId"), genreId);
+    }
+
+    public static Specification<Song> hasComposer(Integer composerId) {
+        return (root, query, builder) -> composerId == null ? null : builder.equal(root.get("composer").get("composerId"), composerId);
+    }
+
+    public static Specification<Song> hasPublisher(Integer publisherId) {
+        return (root, query, builder) -> publisherId == null ? null : builder.equal(root.get("publisher").get("publisherId"), publisherId);
+    }
+
+    public static Specification<Song> createdFrom(LocalDate from) {
+        return (root, query, builder) -> from == null ? null : builder.greaterThanOrEqualTo(root.get("dateCreated"), from);
+    }
+
+    public static Specification<Song> createdTo(LocalDate to) {
+        return (root, query, builder) -> to == null ? null : builder.lessThanOrEqualTo(root.get("dateCreated"), to);
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -1,9 +1,57 @@
 package at.htlklu.bavi.repository;
 
 import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.payload.response.SongSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface SongsRepository extends JpaRepository<Song, Integer> {
+public interface SongsRepository extends JpaRepository<Song, Integer>, SongsRepositoryCustom {
+
+    // Songs are serialized with their publisher, genre, composer and member. The methods returning entities load
+    // them in the same select (Song.DETAILS_GRAPH), otherwise every lazy proxy costs its own query while the
+    // response is written. The associations are to-one, so the page limit still runs in the database.
+    @EntityGraph(Song.DETAILS_GRAPH)
+    Optional<Song> findWithDetailsBySongId(Integer songId);
+
+    @EntityGraph(Song.DETAILS_GRAPH)
+    List<Song> findByComposerComposerIdOrderByTitle(Integer composerId);
+
+    @EntityGraph(Song.DETAILS_GRAPH)
+    List<Song> findByGenreGenreIdOrderByTitle(Integer genreId);
+
+    @EntityGraph(Song.DETAILS_GRAPH)
+    List<Song> findByPublisherPublisherIdOrderByTitle(Integer publisherId);
+
+    @EntityGraph(Song.DETAILS_GRAPH)
+    List<Song> findByMemberMemberIdOrderByTitle(Integer memberId);
+
+    // the columns of SongSummary, for the scroll queries
+    String SUMMARY = "select new at.htlklu.bavi.payload.response.SongSummary(s.songId, s.title, s.archivNumber, s.dateCreated, "
+            + "c.composerId, c.firstname, c.surname, g.genreId, g.name, p.publisherId, p.name) "
+            + "from Song s left join s.composer c left join s.genre g left join s.publisher p ";
+
+    // Keyset pagination (see SongCursor): each page continues after the last song of the previous one instead of
+    // skipping an offset, so with the (TITLE, SONG_ID) and (DATE_CREATED, SONG_ID) indexes every page costs the same.
+    // Pass PageRequest.of(0, size) as limit, it does not run a count query for a List.
+    @Query(SUMMARY + "order by s.title, s.songId")
+    List<SongSummary> findSummariesByTitle(Pageable limit);
+
+    @Query(SUMMARY + "where s.title >= :title and (s.title > :title or s.songId > :songId) order by s.title, s.songId")
+    List<SongSummary> findByTitleAfter(@Param("title") String title, @Param("songId") Integer songId, Pageable limit);
+
+    @Query(SUMMARY + "order by s.dateCreated desc, s.songId desc")
+    List<SongSummary> findSummariesByDateCreated(Pageable limit);
+
+    @Query(SUMMARY + "where s.dateCreated <= :dateCreated and (s.dateCreated < :dateCreated or s.songId < :songId) "
+            + "order by s.dateCreated desc, s.songId desc")
+    List<SongSummary> findByDateCreatedBefore(@Param("dateCreated") LocalDate dateCreated, @Param("songId") Integer songId, Pageable limit);
 }
@@ -0,0 +1,15 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.payload.response.SongSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface SongsRepositoryCustom {
+
+    // The song list selects only the columns of SongSummary in one query, filtered with SongSpecifications.
+    // Sort properties refer to the song, e.g. title or composer.surname; unknown ones fail with
+    // PropertyReferenceException.
+    Page<SongSummary> findSummaries(Specification<Song> filter, Pageable pageable);
+}
@@ -0,0 +1,73 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.Composer;
+import at.htlklu.bavi.model.Genre;
+import at.htlklu.bavi.model.Publisher;
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.payload.response.SongSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+// Criteria query with a constructor expression, so the filters stay Specifications and the sort properties are
+// resolved against Song like for findAll(Specification, Pageable)
+public class SongsRepositoryCustomImpl implements SongsRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<SongSummary> findSummaries(Specification<Song> filter, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SongSummary> query = builder.createQuery(SongSummary.class);
+        Root<Song> song = query.from(Song.class);
+        Join<Song, Composer> composer = song.join("composer", JoinType.LEFT);
+        Join<Song, Genre> genre = song.join("genre", JoinType.LEFT);
+        Join<Song, Publisher> publisher = song.join("publisher", JoinType.LEFT);
+        query.select(builder.construct(SongSummary.class,
+                song.get("songId"), song.get("title"), song.get("archivNumber"), song.get("dateCreated"),
+                composer.get("composerId"), composer.get("firstname"), composer.get("surname"),
+                genre.get("genreId"), genre.get("name"),
+                publisher.get("publisherId"), publisher.get("name")));
+        Predicate predicate = filter.toPredicate(song, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // resolves the sort properties against Song, an unknown one fails with PropertyReferenceException
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), song, builder));
+
+        TypedQuery<SongSummary> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<SongSummary> songs = typedQuery.getResultList();
+        // the count is only queried if the page does not tell the total already
+        return PageableExecutionUtils.getPage(songs, pageable, () -> count(filter));
+    }
+
+    private long count(Specification<Song> filter) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Song> song = query.from(Song.class);
+        query.select(builder.count(song));
+        Predicate predicate = filter.toPredicate(song, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,26 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UploadSessionsRepository extends JpaRepository<UploadSession, String> {
+
+    List<UploadSession> findByLastActivityBefore(Instant lastActivity);
+
+    boolean existsByUploadId(String uploadId);
+
+    // an update instead of save, so a chunk arriving after the session was completed does not store it again
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.lastActivity = :lastActivity where s.sessionId = :sessionId")
+    int touch(@Param("sessionId") String sessionId, @Param("lastActivity") Instant lastActivity);
+}
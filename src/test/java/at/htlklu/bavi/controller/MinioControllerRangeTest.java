@@ -0,0 +1,87 @@
+package at.htlklu.bavi.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinioControllerRangeTest {
+
+    private static final String ETAG = "\"abc\"";
+    private static final long SIZE = 100;
+    private static final long LAST_MODIFIED = Instant.parse("2024-03-01T10:15:30.250Z").toEpochMilli();
+
+    @Test
+    void singleRangeIsServed() {
+        assertRange(10, 19, getRange("bytes=10-19", null));
+        assertRange(90, 99, getRange("bytes=-10", null));
+        assertRange(50, 99, getRange("bytes=50-", null));
+        // the end is cut to the size of the file
+        assertRange(90, 99, getRange("bytes=90-200", null));
+    }
+
+    @Test
+    void missingMultipleOrMalformedRangesSendTheFullFile() {
+        assertNull(getRange(null, null));
+        assertNull(getRange("bytes=0-9,20-29", null));
+        assertNull(getRange("bytes=abc", null));
+        assertNull(getRange("lines=0-9", null));
+    }
+
+    @Test
+    void rangeBeyondTheFileIsNotSatisfiable() {
+        assertTrue(MinioController.isSatisfiable(getRange("bytes=99-", null), SIZE));
+        assertTrue(MinioController.isSatisfiable(getRange("bytes=-200", null), SIZE));
+        // answered with 416 by downloadFile
+        assertFalse(MinioController.isSatisfiable(getRange("bytes=100-", null), SIZE));
+        assertFalse(MinioController.isSatisfiable(getRange("bytes=200-300", null), SIZE));
+        assertFalse(MinioController.isSatisfiable(getRange("bytes=-0", null), SIZE));
+        assertFalse(MinioController.isSatisfiable(getRange("bytes=0-9", null), 0));
+    }
+
+    @Test
+    void ifRangeMatchesTheStrongETagOnly() {
+        assertRange(0, 9, getRange("bytes=0-9", ETAG));
+        assertNull(getRange("bytes=0-9", "\"other\""));
+        assertNull(getRange("bytes=0-9", "W/" + ETAG));
+        // the codec suffix marks another representation
+        assertNull(getRange("bytes=0-9", "\"abc-deflate\""));
+    }
+
+    @Test
+    void ifRangeDateMatchesToTheSecond() {
+        DateTimeFormatter formatter = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+        String date = formatter.format(Instant.ofEpochMilli(LAST_MODIFIED));
+
+        assertRange(0, 9, getRange("bytes=0-9", date));
+        assertNull(getRange("bytes=0-9", formatter.format(Instant.ofEpochMilli(LAST_MODIFIED - 1000))));
+        assertNull(getRange("bytes=0-9", formatter.format(Instant.ofEpochMilli(LAST_MODIFIED + 1000))));
+        assertNull(getRange("bytes=0-9", "yesterday"));
+    }
+
+    private static HttpRange getRange(String range, String ifRange) {
+        HttpHeaders headers = new HttpHeaders();
+        if (range != null) {
+            headers.set(HttpHeaders.RANGE, range);
+        }
+        if (ifRange != null) {
+            headers.set(HttpHeaders.IF_RANGE, ifRange);
+        }
+        return MinioController.getRange(headers, ETAG, LAST_MODIFIED);
+    }
+
+    private static void assertRange(long start, long end, HttpRange range) {
+        assertNotNull(range);
+        assertEquals(start, range.getRangeStart(SIZE));
+        assertEquals(end, range.getRangeEnd(SIZE));
+    }
+}
@@ -0,0 +1,118 @@
+package at.htlklu.bavi.minio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChecksumInputStreamTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+    private static final String WRONG = "0".repeat(64);
+
+    @Test
+    void matchingChecksumReturnsEverything() throws Exception {
+        try (ChecksumInputStream inputStream = open(CONTENT, checksum(CONTENT))) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+            assertEquals(CONTENT.length, inputStream.getCount());
+            // reading at the end keeps returning -1
+            assertEquals(-1, inputStream.read());
+        }
+    }
+
+    @Test
+    void everyReadSizeReturnsTheSameBytes() throws Exception {
+        for (int size = 1; size <= CONTENT.length + 2; size++) {
+            try (ChecksumInputStream inputStream = open(CONTENT, checksum(CONTENT))) {
+                assertArrayEquals(CONTENT, readInChunks(inputStream, size), "read size " + size);
+            }
+        }
+        try (ChecksumInputStream inputStream = open(CONTENT, checksum(CONTENT))) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            int b;
+            while ((b = inputStream.read()) != -1) {
+                outputStream.write(b);
+            }
+            assertArrayEquals(CONTENT, outputStream.toByteArray());
+        }
+    }
+
+    @Test
+    void mismatchHoldsBackTheLastByte() throws Exception {
+        for (int size : new int[]{1, 4, CONTENT.length, 64}) {
+            ByteArrayOutputStream returned = new ByteArrayOutputStream();
+            try (ChecksumInputStream inputStream = open(CONTENT, WRONG)) {
+                byte[] buffer = new byte[size];
+                assertThrows(MinioChecksumException.class, () -> {
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        returned.write(buffer, 0, read);
+                    }
+                });
+                // the client gets one byte less than the Content-Length
+                assertEquals(CONTENT.length - 1, returned.size(), "read size " + size);
+                // and fails again on a retry
+                assertThrows(MinioChecksumException.class, inputStream::read);
+            }
+        }
+    }
+
+    @Test
+    void emptyStreamIsVerified() throws Exception {
+        try (ChecksumInputStream inputStream = open(new byte[0], checksum(new byte[0]))) {
+            assertEquals(-1, inputStream.read(new byte[8]));
+        }
+        try (ChecksumInputStream inputStream = open(new byte[0], WRONG)) {
+            assertThrows(MinioChecksumException.class, () -> inputStream.read(new byte[8]));
+        }
+    }
+
+    @Test
+    void skippedBytesAreDigested() throws Exception {
+        try (ChecksumInputStream inputStream = open(CONTENT, checksum(CONTENT))) {
+            assertEquals(5, inputStream.skip(5));
+            assertArrayEquals("56789abcdefghij".getBytes(StandardCharsets.US_ASCII), inputStream.readAllBytes());
+        }
+        try (ChecksumInputStream inputStream = open(CONTENT, WRONG)) {
+            assertEquals(5, inputStream.skip(5));
+            assertThrows(MinioChecksumException.class, inputStream::readAllBytes);
+        }
+    }
+
+    @Test
+    void closingBeforeTheEndIsNotVerified() {
+        assertDoesNotThrow(() -> {
+            try (ChecksumInputStream inputStream = open(CONTENT, WRONG)) {
+                inputStream.readNBytes(10);
+            }
+        });
+    }
+
+    private static ChecksumInputStream open(byte[] content, String checksum) {
+        return new ChecksumInputStream(new ByteArrayInputStream(content), checksum, "test");
+    }
+
+    private static byte[] readInChunks(InputStream inputStream, int size) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[size];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String checksum(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -0,0 +1,205 @@
+package at.htlklu.bavi.minio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalFileStorageTest {
+
+    private static final String BUCKET = "song1";
+
+    @TempDir
+    private Path root;
+
+    private LocalFileStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalFileStorage(root);
+        storage.createBucket(BUCKET);
+    }
+
+    @Test
+    void uploadReplacesContentAndETag() throws IOException {
+        String first = upload("score.pdf", "first", null, null);
+        assertEquals("first", read("score.pdf"));
+
+        String second = upload("score.pdf", "second version", null, null);
+
+        assertNotEquals(first, second);
+        assertEquals("second version", read("score.pdf"));
+        StoredFile stat = storage.statFile(BUCKET, "score.pdf");
+        assertEquals(second, stat.getETag());
+        assertEquals("second version".length(), stat.getSize());
+        // nothing is left of the temporary files
+        try (var files = Files.list(root.resolve(".tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void uploadWithWrongSizeFails() {
+        byte[] content = "short".getBytes(StandardCharsets.UTF_8);
+        assertThrows(MinioServiceException.class, () -> storage.uploadFile(BUCKET, "score.pdf", new ByteArrayInputStream(content),
+                content.length + 1, "application/pdf", Map.of(), null, null));
+        assertThrows(FileNotFoundException.class, () -> storage.statFile(BUCKET, "score.pdf"));
+    }
+
+    @Test
+    void conditionalUploadChecksTheCurrentVersion() throws IOException {
+        String eTag = upload("score.pdf", "first", null, "*");
+
+        // create only, the file exists now
+        assertThrows(MinioPreconditionFailedException.class, () -> upload("score.pdf", "other", null, "*"));
+        assertThrows(MinioPreconditionFailedException.class, () -> upload("score.pdf", "other", "\"unknown\"", null));
+        assertThrows(MinioPreconditionFailedException.class, () -> upload("missing.pdf", "other", "\"" + eTag + "\"", null));
+        assertEquals("first", read("score.pdf"));
+
+        String replaced = upload("score.pdf", "second", "\"" + eTag + "\"", null);
+        assertEquals("second", read("score.pdf"));
+        // the old ETag does not match anymore
+        assertThrows(MinioPreconditionFailedException.class, () -> upload("score.pdf", "third", eTag, null));
+        assertEquals(replaced, storage.statFile(BUCKET, "score.pdf").getETag());
+    }
+
+    @Test
+    void listFilesSortsAndStartsAfterTheGivenName() {
+        upload("d.pdf", "d", null, null);
+        upload("a.pdf", "a", null, null);
+        upload("parts/b.pdf", "b", null, null);
+        upload("parts/c.pdf", "c", null, null);
+
+        assertEquals(List.of("a.pdf", "d.pdf", "parts/b.pdf", "parts/c.pdf"), names(storage.listFiles(BUCKET, null, null, 10)));
+        assertEquals(List.of("d.pdf", "parts/b.pdf", "parts/c.pdf"), names(storage.listFiles(BUCKET, null, "a.pdf", 10)));
+        assertEquals(List.of("parts/c.pdf"), names(storage.listFiles(BUCKET, "parts/", "parts/b.pdf", 10)));
+        assertEquals(List.of(), names(storage.listFiles(BUCKET, null, "parts/c.pdf", 10)));
+        // the sidecar and temporary directories are no buckets
+        assertEquals(List.of(BUCKET), storage.listBuckets());
+    }
+
+    @Test
+    void namesCannotLeaveTheirDirectory() {
+        storage.createBucket("song2");
+        upload("secret.pdf", "secret", null, null);
+
+        assertThrows(MinioServiceException.class, () -> storage.statFile("song2", "../" + BUCKET + "/secret.pdf"));
+        assertThrows(MinioServiceException.class, () -> storage.statFile("song2", "parts/../../" + BUCKET + "/secret.pdf"));
+        assertThrows(MinioServiceException.class, () -> storage.statFile("song2", "."));
+        assertThrows(MinioServiceException.class, () -> storage.createBucket("../outside"));
+        assertThrows(MinioServiceException.class, () -> storage.createBucket(".meta"));
+        assertThrows(MinioServiceException.class, () -> storage.listFiles(".tmp", null, null, 10));
+        assertFalse(Files.exists(root.getParent().resolve("outside")));
+    }
+
+    @Test
+    void sidecarKeepsContentTypeAndUserMetadata() throws IOException {
+        String eTag = storage.uploadFile(BUCKET, "score.xml", new ByteArrayInputStream(new byte[]{1, 2, 3}), 3,
+                "application/xml", Map.of("sha256", "abc"), null, null);
+
+        StoredFile stat = storage.statFile(BUCKET, "score.xml");
+        assertEquals("application/xml", stat.getContentType());
+        assertEquals(Map.of("sha256", "abc"), stat.getUserMetadata());
+        try (StorageInputStream inputStream = storage.downloadFile(BUCKET, "score.xml", null, null, null)) {
+            assertEquals(Map.of("sha256", "abc"), inputStream.getUserMetadata());
+        }
+
+        // the metadata update keeps the content and its ETag, and only applies to the given version
+        assertEquals(eTag, storage.updateUserMetadata(BUCKET, "score.xml", eTag, "text/xml", Map.of("sha256", "def")));
+        assertEquals(Map.of("sha256", "def"), storage.statFile(BUCKET, "score.xml").getUserMetadata());
+        assertEquals("text/xml", storage.statFile(BUCKET, "score.xml").getContentType());
+        assertThrows(MinioPreconditionFailedException.class,
+                () -> storage.updateUserMetadata(BUCKET, "score.xml", "other", null, Map.of()));
+
+        // copies keep the metadata
+        storage.createBucket("song2");
+        storage.copyFile(BUCKET, "score.xml", "song2", "copy.xml");
+        StoredFile copy = storage.statFile("song2", "copy.xml");
+        assertEquals(eTag, copy.getETag());
+        assertEquals(Map.of("sha256", "def"), copy.getUserMetadata());
+    }
+
+    @Test
+    void fileWithoutSidecarGetsETagFromItsAttributes() throws IOException {
+        Files.writeString(root.resolve(BUCKET).resolve("manual.txt"), "copied by hand");
+
+        StoredFile stat = storage.statFile(BUCKET, "manual.txt");
+        assertNotNull(stat.getETag());
+        assertNull(stat.getContentType());
+        assertEquals(Map.of(), stat.getUserMetadata());
+    }
+
+    @Test
+    void downloadAndTransferFailForAReplacedVersion() throws IOException {
+        String eTag = upload("score.pdf", "0123456789", null, null);
+
+        try (InputStream inputStream = storage.downloadFile(BUCKET, "score.pdf", eTag, 2L, 3L)) {
+            assertEquals("234", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertEquals(4, storage.transferTo(BUCKET, "score.pdf", eTag, 5, 4, outputStream));
+        assertEquals("5678", outputStream.toString(StandardCharsets.UTF_8));
+
+        upload("score.pdf", "replaced", null, null);
+        assertThrows(FileNotFoundException.class, () -> storage.downloadFile(BUCKET, "score.pdf", eTag, null, null));
+        assertThrows(FileNotFoundException.class, () -> storage.openTransfer(BUCKET, "score.pdf", eTag, 0, 8));
+    }
+
+    @Test
+    void localFileKeepsItsVersion() throws IOException {
+        String eTag = upload("score.pdf", "first", null, null);
+
+        Path localFile = storage.getLocalFile(BUCKET, "score.pdf", eTag);
+        assertNotNull(localFile);
+        assertEquals("first", Files.readString(localFile));
+        assertEquals(localFile, storage.getLocalFile(BUCKET, "score.pdf", eTag));
+        assertNull(storage.getLocalFile(BUCKET, "score.pdf", "other"));
+
+        // a replace removes the link, it is never opened with the new content
+        String replaced = upload("score.pdf", "second", null, null);
+        assertFalse(Files.exists(localFile));
+        assertNull(storage.getLocalFile(BUCKET, "score.pdf", eTag));
+        assertEquals("second", Files.readString(storage.getLocalFile(BUCKET, "score.pdf", replaced)));
+
+        storage.deleteFile(BUCKET, "score.pdf");
+        assertNull(storage.getLocalFile(BUCKET, "score.pdf", replaced));
+        storage.removeBucket(BUCKET);
+        assertEquals(List.of(), storage.listBuckets());
+    }
+
+    private String upload(String objectName, String content, String ifMatch, String ifNoneMatch) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return storage.uploadFile(BUCKET, objectName, new ByteArrayInputStream(bytes), bytes.length, "application/pdf", Map.of(),
+                ifMatch, ifNoneMatch);
+    }
+
+    private String read(String objectName) throws IOException {
+        try (InputStream inputStream = storage.downloadFile(BUCKET, objectName, null, null, null)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> names(Iterator<StoredFile> files) {
+        List<String> names = new ArrayList<>();
+        files.forEachRemaining(file -> names.add(file.getName()));
+        return names;
+    }
+}
@@ -0,0 +1,95 @@
+package at.htlklu.bavi.minio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinioCodecTest {
+
+    @Test
+    void acceptEncodingWithoutQualityAcceptsTheCodec() {
+        assertTrue(MinioCodec.isAccepted("deflate", MinioCodec.DEFLATE));
+        assertTrue(MinioCodec.isAccepted("gzip, deflate, br", MinioCodec.DEFLATE));
+        assertTrue(MinioCodec.isAccepted("GZIP,DEFLATE", MinioCodec.DEFLATE));
+        assertTrue(MinioCodec.isAccepted("*", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted("gzip, br", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted("", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted(null, MinioCodec.DEFLATE));
+    }
+
+    @Test
+    void zeroQualityRefusesTheCodec() {
+        assertFalse(MinioCodec.isAccepted("deflate;q=0", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted("gzip, deflate; q=0.000", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted("deflate;Q = 0.0", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted("gzip, *;q=0", MinioCodec.DEFLATE));
+        assertTrue(MinioCodec.isAccepted("deflate;q=0.5", MinioCodec.DEFLATE));
+        assertTrue(MinioCodec.isAccepted("deflate;q=0.001", MinioCodec.DEFLATE));
+        assertTrue(MinioCodec.isAccepted("deflate;q=1.0", MinioCodec.DEFLATE));
+    }
+
+    @Test
+    void codecTakesPrecedenceOverWildcard() {
+        assertTrue(MinioCodec.isAccepted("*;q=0, deflate", MinioCodec.DEFLATE));
+        assertTrue(MinioCodec.isAccepted("deflate;q=0.8, *;q=0", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted("*, deflate;q=0", MinioCodec.DEFLATE));
+        assertFalse(MinioCodec.isAccepted("deflate;q=0, *", MinioCodec.DEFLATE));
+    }
+
+    @Test
+    void onlyUncompressedFormatsAreCompressible() {
+        assertTrue(MinioCodec.isCompressible("score.musicxml", "application/vnd.recordare.musicxml+xml"));
+        assertTrue(MinioCodec.isCompressible("notes.txt", "text/plain; charset=UTF-8"));
+        assertTrue(MinioCodec.isCompressible("song.mid", "audio/midi"));
+        // browsers send unknown types as octet-stream, the extension decides
+        assertTrue(MinioCodec.isCompressible("score.xml", "application/octet-stream"));
+        assertTrue(MinioCodec.isCompressible("score.ly", null));
+        assertFalse(MinioCodec.isCompressible("score.mxl", "application/vnd.recordare.musicxml"));
+        assertFalse(MinioCodec.isCompressible("score.mxl", "application/octet-stream"));
+        assertFalse(MinioCodec.isCompressible("score.pdf", "application/pdf"));
+        assertFalse(MinioCodec.isCompressible("song.mp3", "audio/mpeg"));
+        // a declared type wins over the extension
+        assertFalse(MinioCodec.isCompressible("score.xml", "application/pdf"));
+    }
+
+    @Test
+    void encodedContentIsDecodedAgain() throws IOException {
+        byte[] content = "<score-partwise>".repeat(100).getBytes(StandardCharsets.UTF_8);
+        byte[] encoded;
+        try (InputStream inputStream = MinioCodec.encode(new ByteArrayInputStream(content))) {
+            encoded = inputStream.readAllBytes();
+        }
+        assertTrue(encoded.length < content.length);
+
+        try (InputStream inputStream = MinioCodec.decode(new ByteArrayInputStream(encoded))) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        try (OutputStream outputStream = MinioCodec.decode(decoded)) {
+            outputStream.write(encoded);
+        }
+        assertArrayEquals(content, decoded.toByteArray());
+    }
+
+    @Test
+    void metadataKeepsCodecAndOriginalSize() {
+        Map<String, String> metadata = MinioCodec.getMetadata(1234);
+        assertEquals(MinioCodec.DEFLATE, MinioCodec.getCodec(metadata));
+        assertEquals(1234, MinioCodec.getOriginalSize(metadata));
+
+        assertEquals(-1, MinioCodec.getOriginalSize(MinioCodec.getMetadata(-1)));
+        assertNull(MinioCodec.getCodec(Map.of()));
+    }
+}
@@ -0,0 +1,143 @@
+package at.htlklu.bavi.minio;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinioDiskCacheTest {
+
+    private static final String BUCKET = "song1";
+
+    @TempDir
+    private Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MinioDiskCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new MinioDiskCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "directory", directory);
+        ReflectionTestUtils.setField(cache, "maxBytes", 30L);
+        ReflectionTestUtils.setField(cache, "maxFileBytes", 20L);
+        cache.init();
+    }
+
+    @Test
+    void cachedCopyServesRangesOfItsVersion() throws IOException {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        assertEquals(10, cache.copyAndCache(BUCKET, "a.pdf", "v1", 10, content("0123456789"), client));
+        assertEquals("0123456789", client.toString(StandardCharsets.UTF_8));
+        assertEquals(10, cache.getTotalBytes());
+
+        assertEquals("345", read("a.pdf", "v1", 3, 3));
+        // another version of the same file is a miss
+        assertFalse(cache.transferTo(BUCKET, "a.pdf", "v2", 0, 10, OutputStream.nullOutputStream()));
+        // bucket names are compared like MinIO does, case-insensitive
+        assertNotNull(cache.getCachedFile("SONG1", "a.pdf", "v1", 10));
+
+        assertEquals(2, meterRegistry.get("minio.disk.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("minio.disk.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(13, meterRegistry.get("minio.disk.cache.bytes.saved").counter().count());
+    }
+
+    @Test
+    void leastRecentlyUsedFileIsEvicted() throws IOException {
+        cache("a.pdf", 10);
+        cache("b.pdf", 10);
+        cache("c.pdf", 10);
+        assertEquals(30, cache.getTotalBytes());
+
+        // a is used again, b is the least recently used file now
+        assertEquals("aaa", read("a.pdf", "v1", 0, 3));
+        cache("d.pdf", 10);
+
+        assertEquals(30, cache.getTotalBytes());
+        assertNull(cache.getCachedFile(BUCKET, "b.pdf", "v1", 10));
+        assertNotNull(cache.getCachedFile(BUCKET, "a.pdf", "v1", 10));
+        assertNotNull(cache.getCachedFile(BUCKET, "c.pdf", "v1", 10));
+        assertNotNull(cache.getCachedFile(BUCKET, "d.pdf", "v1", 10));
+        // the evicted copy is deleted, no temporary file is left
+        assertEquals(3, countFiles());
+    }
+
+    @Test
+    void largeOrIncompleteFilesAreNotCached() throws IOException {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        cache.copyAndCache(BUCKET, "large.pdf", "v1", 21, content("x".repeat(21)), client);
+        assertEquals(21, client.size());
+
+        // the stream ended before the announced size
+        cache.copyAndCache(BUCKET, "short.pdf", "v1", 10, content("12345"), OutputStream.nullOutputStream());
+
+        assertEquals(0, cache.getTotalBytes());
+        assertNull(cache.getCachedFile(BUCKET, "large.pdf", "v1", 21));
+        assertNull(cache.getCachedFile(BUCKET, "short.pdf", "v1", 10));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void invalidationFreesTheSpace() throws IOException {
+        cache("a.pdf", 10);
+        cache("b.pdf", 5);
+        cache.copyAndCache("song2", "a.pdf", "v1", 7, content("1234567"), OutputStream.nullOutputStream());
+
+        cache.invalidate(BUCKET, "a.pdf");
+        assertEquals(12, cache.getTotalBytes());
+        assertNull(cache.getCachedFile(BUCKET, "a.pdf", "v1", 10));
+        assertNotNull(cache.getCachedFile("song2", "a.pdf", "v1", 7));
+
+        cache.invalidateBucket(BUCKET);
+        assertEquals(7, cache.getTotalBytes());
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void sameVersionIsCachedOnce() throws IOException {
+        cache("a.pdf", 10);
+        cache("a.pdf", 10);
+
+        assertEquals(10, cache.getTotalBytes());
+        assertEquals(1, countFiles());
+    }
+
+    private void cache(String objectName, int size) throws IOException {
+        String content = objectName.substring(0, 1).repeat(size);
+        cache.copyAndCache(BUCKET, objectName, "v1", size, content(content), OutputStream.nullOutputStream());
+    }
+
+    private String read(String objectName, String eTag, long offset, long length) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertTrue(cache.transferTo(BUCKET, objectName, eTag, offset, length, outputStream));
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.count();
+        }
+    }
+
+    private static ByteArrayInputStream content(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package at.htlklu.bavi.minio;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A file PUT to a presigned URL bypasses the backend; confirmUpload records its checksum, refreshes the cached
+// listing and publishes the STORED event. Runs against the MinIO of docker/docker-compose.yml only, see
+// MinioTestSupport.
+class MinioPresignedUploadTest {
+
+    private static final String FILE = "score.pdf";
+
+    private MinioClient client;
+    private String bucketName;
+    private MinioService minioService;
+    private final List<Object> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String endpoint = MinioTestSupport.endpoint();
+        client = MinioTestSupport.client(endpoint);
+        bucketName = MinioTestSupport.createBucket(client, "presigned");
+
+        StorageLayout storageLayout = new BucketStorageLayout(client);
+        FileStorage fileStorage = new MinioFileStorage(client, MinioTestSupport.multipartClient(endpoint), storageLayout, 5 * 1024 * 1024);
+        minioService = new MinioService();
+        ReflectionTestUtils.setField(minioService, "fileStorage", fileStorage);
+        ReflectionTestUtils.setField(minioService, "storageLayout", storageLayout);
+        ReflectionTestUtils.setField(minioService, "minioCache", new MinioCache(new SimpleMeterRegistry(), Duration.ofMinutes(5), 100));
+        ReflectionTestUtils.setField(minioService, "minioDiskCache", Mockito.mock(MinioDiskCache.class));
+        ReflectionTestUtils.setField(minioService, "minioDedupService", Mockito.mock(MinioDedupService.class));
+        ReflectionTestUtils.setField(minioService, "eventPublisher", (ApplicationEventPublisher) events::add);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (bucketName != null) {
+            MinioTestSupport.removeBucket(client, bucketName);
+        }
+    }
+
+    @Test
+    void confirmUploadPublishesPresignedUpload() throws Exception {
+        byte[] content = "%PDF-1.4 presigned".getBytes(StandardCharsets.US_ASCII);
+        // cached before the upload, as a client listing the song would
+        assertTrue(minioService.listFiles(bucketName).isEmpty());
+
+        String url = minioService.getPresignedUploadUrl(bucketName, FILE, 60);
+        HttpResponse<Void> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url)).PUT(HttpRequest.BodyPublishers.ofByteArray(content)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertEquals(200, response.statusCode());
+        assertTrue(minioService.listFiles(bucketName).isEmpty(), "listing is cached until the upload is confirmed");
+
+        String eTag = minioService.confirmUpload(bucketName, FILE);
+
+        assertNotNull(eTag);
+        assertEquals(List.of(FILE), minioService.listFiles(bucketName));
+        StoredFile stat = minioService.statFile(bucketName, FILE);
+        assertEquals(eTag, stat.getETag());
+        String checksum = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        assertEquals(checksum, MinioChecksum.getChecksum(stat.getUserMetadata()));
+        assertEquals(1, events.size());
+        MinioFileEvent event = (MinioFileEvent) events.get(0);
+        assertEquals(MinioFileEvent.Type.STORED, event.getType());
+        assertEquals(FILE, event.getObjectName());
+    }
+
+    @Test
+    void confirmUploadOfMissingFileFails() {
+        assertThrows(FileNotFoundException.class, () -> minioService.confirmUpload(bucketName, FILE));
+        assertTrue(events.isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package at.htlklu.bavi.minio;
+
+import io.minio.BucketExistsArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.RemoveBucketArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.Assumptions;
+
+import java.util.UUID;
+
+// Tests against the MinIO of docker/docker-compose.yml. They are skipped unless its endpoint is given, e.g. with the
+// "9000:9000" port of the minio service enabled: mvn test -Dminio.test.endpoint=http://localhost:9000
+// (or the environment variable MINIO_TEST_ENDPOINT).
+final class MinioTestSupport {
+
+    static final String ACCESS_KEY = "root";
+    static final String SECRET_KEY = "rootroot";
+
+    private MinioTestSupport() {
+    }
+
+    static String endpoint() {
+        String endpoint = System.getProperty("minio.test.endpoint", System.getenv("MINIO_TEST_ENDPOINT"));
+        Assumptions.assumeTrue(endpoint != null && !endpoint.isBlank(), "No MinIO endpoint given (minio.test.endpoint)");
+        return endpoint;
+    }
+
+    static MinioClient client(String endpoint) {
+        return MinioClient.builder().endpoint(endpoint).credentials(ACCESS_KEY, SECRET_KEY).build();
+    }
+
+    static MinioMultipartClient multipartClient(String endpoint) {
+        return new MinioMultipartClient(MinioAsyncClient.builder().endpoint(endpoint).credentials(ACCESS_KEY, SECRET_KEY).build());
+    }
+
+    // a new bucket per test, so runs never see each other's objects
+    static String createBucket(MinioClient client, String prefix) throws Exception {
+        String bucketName = prefix + "-" + UUID.randomUUID();
+        client.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+        return bucketName;
+    }
+
+    static void removeBucket(MinioClient client, String bucketName) throws Exception {
+        if (!client.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
+            return;
+        }
+        for (Result<Item> result : client.listObjects(ListObjectsArgs.builder().bucket(bucketName).recursive(true).build())) {
+            client.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(result.get().objectName()).build());
+        }
+        client.removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+    }
+}
@@ -0,0 +1,97 @@
+package at.htlklu.bavi.minio;
+
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares the single conditional-capable PUT of MinioFileStorage.uploadFile with the former upload, which ran
+// statObject and removeObject before every putObject. Runs against the MinIO of docker/docker-compose.yml only,
+// see MinioTestSupport.
+class MinioUploadBenchmarkTest {
+
+    private static final Logger logger = LogManager.getLogger(MinioUploadBenchmarkTest.class);
+    private static final int FILES = 50;
+    private static final int ROUNDS = 5;
+    private static final int FILE_SIZE = 64 * 1024;
+
+    private MinioClient client;
+    private MinioFileStorage fileStorage;
+    private String bucketName;
+    private final byte[] content = new byte[FILE_SIZE];
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String endpoint = MinioTestSupport.endpoint();
+        client = MinioTestSupport.client(endpoint);
+        fileStorage = new MinioFileStorage(client, MinioTestSupport.multipartClient(endpoint), new BucketStorageLayout(client), 5 * 1024 * 1024);
+        bucketName = MinioTestSupport.createBucket(client, "benchmark");
+        new Random(42).nextBytes(content);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (bucketName != null) {
+            MinioTestSupport.removeBucket(client, bucketName);
+        }
+    }
+
+    @Test
+    void singlePutIsFasterThanStatRemovePut() throws Exception {
+        // warm up connections and the JIT, then replace existing files as the upload endpoint does
+        uploadWithStatAndRemove();
+        uploadWithSinglePut();
+
+        long statRemovePut = Long.MAX_VALUE;
+        long singlePut = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            statRemovePut = Math.min(statRemovePut, uploadWithStatAndRemove());
+            singlePut = Math.min(singlePut, uploadWithSinglePut());
+        }
+        logger.info("Upload of {} files with {} bytes, best of {} rounds: stat+remove+put {} ms, single put {} ms",
+                FILES, FILE_SIZE, ROUNDS, statRemovePut / 1_000_000, singlePut / 1_000_000);
+        assertTrue(singlePut < statRemovePut, "single put " + singlePut + " ns, stat+remove+put " + statRemovePut + " ns");
+    }
+
+    private long uploadWithSinglePut() {
+        long start = System.nanoTime();
+        for (int i = 0; i < FILES; i++) {
+            fileStorage.uploadFile(bucketName, "file" + i, new ByteArrayInputStream(content), content.length,
+                    "application/octet-stream", Map.of(), null, null);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // the requests of the upload before the change
+    private long uploadWithStatAndRemove() throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < FILES; i++) {
+            String objectName = "file" + i;
+            try {
+                client.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+                client.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
+            } catch (ErrorResponseException e) {
+                // not uploaded yet
+            }
+            client.putObject(PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .stream(new ByteArrayInputStream(content), content.length, -1)
+                    .contentType("application/octet-stream")
+                    .build());
+        }
+        return System.nanoTime() - start;
+    }
+}
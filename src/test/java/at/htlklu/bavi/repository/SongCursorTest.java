@@ -0,0 +1,57 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.payload.response.SongSummary;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SongCursorTest {
+
+    @Test
+    void titleCursorSurvivesItsToken() {
+        // the separator and non-ASCII characters in the title
+        SongSummary song = summary(42, "Marsch | Böhmischer Traum", LocalDate.of(2024, 3, 1));
+
+        SongCursor cursor = SongCursor.decode(SongCursor.after(SongCursor.Sort.TITLE, song).encode());
+
+        assertEquals(SongCursor.Sort.TITLE, cursor.getSort());
+        assertEquals("Marsch | Böhmischer Traum", cursor.getTitle());
+        assertEquals(42, cursor.getSongId());
+        assertNull(cursor.getDateCreated());
+    }
+
+    @Test
+    void dateCursorSurvivesItsToken() {
+        SongSummary song = summary(7, "Polka", LocalDate.of(2023, 12, 31));
+
+        SongCursor cursor = SongCursor.decode(SongCursor.after(SongCursor.Sort.DATE_CREATED, song).encode());
+
+        assertEquals(SongCursor.Sort.DATE_CREATED, cursor.getSort());
+        assertEquals(LocalDate.of(2023, 12, 31), cursor.getDateCreated());
+        assertEquals(7, cursor.getSongId());
+        assertNull(cursor.getTitle());
+    }
+
+    @Test
+    void invalidTokensAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SongCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> SongCursor.decode(token("TITLE|42")));
+        assertThrows(IllegalArgumentException.class, () -> SongCursor.decode(token("UNKNOWN|42|Polka")));
+        assertThrows(IllegalArgumentException.class, () -> SongCursor.decode(token("TITLE|x|Polka")));
+        assertThrows(IllegalArgumentException.class, () -> SongCursor.decode(token("DATE_CREATED|42|yesterday")));
+    }
+
+    private static String token(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SongSummary summary(Integer songId, String title, LocalDate dateCreated) {
+        return new SongSummary(songId, title, "A1", dateCreated, null, null, null, null, null, null, null);
+    }
+}
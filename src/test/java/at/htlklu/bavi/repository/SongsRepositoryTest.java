@@ -0,0 +1,216 @@
+package at.htlklu.bavi.repository;
+
+import at.htlklu.bavi.model.Composer;
+import at.htlklu.bavi.model.Genre;
+import at.htlklu.bavi.model.Member;
+import at.htlklu.bavi.model.Publisher;
+import at.htlklu.bavi.model.Song;
+import at.htlklu.bavi.payload.response.SongSummary;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.mapping.PropertyReferenceException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Counts the statements of the song queries: the list, the scroll and the detail endpoint must each load their
+// songs with one select, however many songs and associations are serialized. The second-level cache is off, it
+// would hide lazy loads of cached reference data. The scroll tests page through songs with equal sort keys.
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class SongsRepositoryTest {
+
+    private static final int SONGS = 5;
+
+    @Autowired
+    private SongsRepository songsRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Integer songId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < SONGS; i++) {
+            Publisher publisher = entityManager.persist(new Publisher(null, "Publisher " + i, "test"));
+            Genre genre = entityManager.persist(new Genre(null, "Genre " + i, "test"));
+            Composer composer = entityManager.persist(new Composer(null, "First " + i, "Last " + i, "test"));
+            Member member = new Member();
+            member.setFirstname("First " + i);
+            member.setSurname("Last " + i);
+            member.setEmail("member" + i + "@example.com");
+            member.setCreatedBy("test");
+            entityManager.persist(member);
+
+            Song song = new Song(null, "Song " + i, null, null, LocalDate.of(2024, 1, 1 + i), "test", "A" + i);
+            song.setPublisher(publisher);
+            song.setGenre(genre);
+            song.setComposer(composer);
+            song.setMember(member);
+            songId = entityManager.persist(song).getSongId();
+        }
+        entityManager.flush();
+        // the songs are loaded from the database, not from the persistence context
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listLoadsSummariesWithOneStatement() {
+        Page<SongSummary> songs = songsRepository.findSummaries(Specification.where(null),
+                PageRequest.of(0, 20, Sort.by("title")));
+
+        assertEquals(SONGS, songs.getNumberOfElements());
+        songs.forEach(song -> assertTrue(song.getGenreName().startsWith("Genre")));
+        // the count query is left out, the first page holds all songs
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void titleFilterMatchesWildcardsLiterally() {
+        Page<SongSummary> songs = songsRepository.findSummaries(SongSpecifications.titleContains("%"), PageRequest.of(0, 20));
+
+        assertEquals(0, songs.getTotalElements());
+    }
+
+    @Test
+    void unknownSortPropertyIsRejected() {
+        assertThrows(PropertyReferenceException.class, () -> songsRepository.findSummaries(Specification.where(null),
+                PageRequest.of(0, 20, Sort.by("unknown"))));
+    }
+
+    @Test
+    void scrollLoadsSummariesWithOneStatement() {
+        List<SongSummary> songs = songsRepository.findSummariesByTitle(PageRequest.of(0, 20));
+
+        assertEquals(SONGS, songs.size());
+        songs.forEach(song -> assertTrue(song.getComposerName().startsWith("First")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void scrollByTitleVisitsEverySongOnceWithEqualTitles() {
+        addSongs("Song 2", LocalDate.of(2024, 1, 3), 3);
+
+        List<SongSummary> songs = scroll(SongCursor.Sort.TITLE, 2);
+
+        // equal titles are ordered by id, so no song is skipped or repeated at a page boundary
+        List<SongSummary> expected = songsRepository.findSummariesByTitle(PageRequest.of(0, 100));
+        assertEquals(SONGS + 3, expected.size());
+        assertEquals(ids(expected), ids(songs));
+        List<Integer> equalTitles = songs.stream().filter(song -> song.getTitle().equals("Song 2")).map(SongSummary::getSongId).toList();
+        assertEquals(4, equalTitles.size());
+        assertEquals(equalTitles.stream().sorted().toList(), equalTitles);
+    }
+
+    @Test
+    void scrollByDateCreatedVisitsEverySongOnceWithEqualDates() {
+        addSongs("Other", LocalDate.of(2024, 1, 5), 3);
+
+        List<SongSummary> songs = scroll(SongCursor.Sort.DATE_CREATED, 2);
+
+        // newest first, equal dates by descending id
+        List<SongSummary> expected = songsRepository.findSummariesByDateCreated(PageRequest.of(0, 100));
+        assertEquals(SONGS + 3, expected.size());
+        assertEquals(ids(expected), ids(songs));
+        assertEquals(LocalDate.of(2024, 1, 5), songs.get(0).getDateCreated());
+        List<Integer> equalDates = songs.stream().filter(song -> song.getDateCreated().equals(LocalDate.of(2024, 1, 5)))
+                .map(SongSummary::getSongId).toList();
+        assertEquals(4, equalDates.size());
+        assertEquals(equalDates.stream().sorted(Comparator.reverseOrder()).toList(), equalDates);
+    }
+
+    @Test
+    void scrollAfterTheLastSongIsEmpty() {
+        List<SongSummary> byTitle = songsRepository.findSummariesByTitle(PageRequest.of(0, 100));
+        SongSummary last = byTitle.get(byTitle.size() - 1);
+        assertEquals(List.of(), songsRepository.findByTitleAfter(last.getTitle(), last.getSongId(), PageRequest.of(0, 10)));
+
+        List<SongSummary> byDate = songsRepository.findSummariesByDateCreated(PageRequest.of(0, 100));
+        SongSummary oldest = byDate.get(byDate.size() - 1);
+        assertEquals(List.of(), songsRepository.findByDateCreatedBefore(oldest.getDateCreated(), oldest.getSongId(), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void detailLoadsSongWithItsAssociationsInOneStatement() {
+        Optional<Song> song = songsRepository.findWithDetailsBySongId(songId);
+
+        assertTrue(song.isPresent());
+        readAssociations(song.get());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // pages through all songs like SongController.scrollSongs, each cursor passes through its token
+    private List<SongSummary> scroll(SongCursor.Sort sort, int size) {
+        List<SongSummary> songs = new ArrayList<>();
+        SongCursor cursor = null;
+        while (true) {
+            PageRequest limit = PageRequest.of(0, size + 1);
+            List<SongSummary> page;
+            if (sort == SongCursor.Sort.TITLE) {
+                page = cursor == null ? songsRepository.findSummariesByTitle(limit)
+                        : songsRepository.findByTitleAfter(cursor.getTitle(), cursor.getSongId(), limit);
+            } else {
+                page = cursor == null ? songsRepository.findSummariesByDateCreated(limit)
+                        : songsRepository.findByDateCreatedBefore(cursor.getDateCreated(), cursor.getSongId(), limit);
+            }
+            if (page.size() <= size) {
+                // the last page
+                songs.addAll(page);
+                return songs;
+            }
+            page = page.subList(0, size);
+            songs.addAll(page);
+            cursor = SongCursor.decode(SongCursor.after(sort, page.get(size - 1)).encode());
+        }
+    }
+
+    private void addSongs(String title, LocalDate dateCreated, int count) {
+        for (int i = 0; i < count; i++) {
+            entityManager.persist(new Song(null, title, null, null, dateCreated, "test", "B" + i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static List<Integer> ids(List<SongSummary> songs) {
+        return songs.stream().map(SongSummary::getSongId).toList();
+    }
+
+    // what serializing the song reads
+    private static void readAssociations(Song song) {
+        assertTrue(song.getPublisher().getName().startsWith("Publisher"));
+        assertTrue(song.getGenre().getName().startsWith("Genre"));
+        assertTrue(song.getComposer().getSurname().startsWith("Last"));
+        assertTrue(song.getMember().getSurname().startsWith("Last"));
+    }
+}